@@ -0,0 +1,55 @@
+package com.autumncode.owlapi.ontology.benchmark;
+
+import com.autumncode.owlapi.ontology.OntologyHelper;
+import org.openjdk.jmh.annotations.*;
+import org.semanticweb.owlapi.model.OWLAxiomChange;
+import org.semanticweb.owlapi.model.OWLOntology;
+import org.semanticweb.owlapi.model.OWLOntologyCreationException;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures applyChange: a fresh, empty ontology gets the whole fixture, either in one varargs
+ * call (the way the tests do it) or one change per call (the way most ingest loops do it).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ApplyChangeBenchmark {
+    @Param({"10000", "100000", "1000000"})
+    int axioms;
+
+    @Param({SyntheticOntologies.GENEALOGY, SyntheticOntologies.TERMINATOR})
+    String shape;
+
+    OntologyHelper oh;
+    OWLAxiomChange[] changes;
+
+    @Setup(Level.Invocation)
+    public void setup() throws OWLOntologyCreationException {
+        oh = new OntologyHelper();
+        OWLOntology o = oh.createOntology(shape);
+        List<OWLAxiomChange> list = SyntheticOntologies.GENEALOGY.equals(shape)
+                ? SyntheticOntologies.genealogy(oh, o, axioms)
+                : SyntheticOntologies.terminator(oh, o, axioms);
+        changes = list.toArray(new OWLAxiomChange[list.size()]);
+    }
+
+    @Benchmark
+    public OntologyHelper applyAll() {
+        oh.applyChange(changes);
+        return oh;
+    }
+
+    @Benchmark
+    public OntologyHelper applyEach() {
+        for (OWLAxiomChange change : changes) {
+            oh.applyChange(change);
+        }
+        return oh;
+    }
+}
@@ -0,0 +1,29 @@
+package com.autumncode.owlapi.ontology.benchmark;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the benchmarks with the GC profiler attached (which reports allocation rate and
+ * normalized bytes per operation as well as collection counts) and writes JSON results to
+ * <code>target/jmh-result.json</code>, so runs from different releases can be diffed.
+ *
+ * <p>Any standard JMH command-line arguments are passed through, so
+ * <code>mvn -Pjmh test-compile exec:exec -Djmh.args=SaveLoad</code> runs just one class. Maven
+ * passes <code>jmh.args</code> as a single argument, so it is split on whitespace here.</p>
+ */
+public class BenchmarkRunner {
+    public static void main(String[] args) throws Exception {
+        Options options = new OptionsBuilder()
+                .parent(new CommandLineOptions(String.join(" ", args).trim().split("\\s+")))
+                .addProfiler(GCProfiler.class)
+                .resultFormat(ResultFormatType.JSON)
+                .result("target/jmh-result.json")
+                .build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,67 @@
+package com.autumncode.owlapi.ontology.benchmark;
+
+import com.autumncode.owlapi.ontology.ConcurrentOntologyHelper;
+import org.openjdk.jmh.annotations.*;
+import org.semanticweb.owlapi.model.OWLClass;
+import org.semanticweb.owlapi.model.OWLOntology;
+import org.semanticweb.owlapi.model.OWLOntologyCreationException;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Measures applyChange throughput on a ConcurrentOntologyHelper, with every thread writing to
+ * one shared ontology or each thread writing to its own. Run with <code>-t</code> to vary the
+ * number of threads, e.g. <code>-Djmh.args="-t 8 ConcurrentApply"</code>.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ConcurrentApplyBenchmark {
+    static final String NS = "http://autumncode.com/ontologies/concurrent.owl#";
+
+    @State(Scope.Benchmark)
+    public static class Shared {
+        ConcurrentOntologyHelper oh;
+        OWLOntology o;
+        OWLClass robot;
+        final AtomicInteger threads = new AtomicInteger();
+
+        @Setup(Level.Iteration)
+        public void setup() throws OWLOntologyCreationException {
+            oh = new ConcurrentOntologyHelper();
+            o = oh.createOntology("http://autumncode.com/ontologies/concurrent.owl");
+            robot = oh.createClass(NS + "Robot");
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Writer {
+        OWLOntology own;
+        String prefix;
+        int next;
+
+        @Setup(Level.Iteration)
+        public void setup(Shared shared) throws OWLOntologyCreationException {
+            int thread = shared.threads.incrementAndGet();
+            own = shared.oh.createOntology("http://autumncode.com/ontologies/concurrent-" + thread + ".owl");
+            prefix = NS + "t" + thread + "-";
+        }
+    }
+
+    @Benchmark
+    public OWLOntology sharedOntology(Shared shared, Writer writer) {
+        shared.oh.applyChange(shared.oh.associateIndividualWithClass(shared.o, shared.robot,
+                shared.oh.createIndividual(writer.prefix + writer.next++)));
+        return shared.o;
+    }
+
+    @Benchmark
+    public OWLOntology ownOntology(Shared shared, Writer writer) {
+        shared.oh.applyChange(shared.oh.associateIndividualWithClass(writer.own, shared.robot,
+                shared.oh.createIndividual(writer.prefix + writer.next++)));
+        return writer.own;
+    }
+}
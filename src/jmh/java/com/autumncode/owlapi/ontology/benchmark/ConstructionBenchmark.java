@@ -0,0 +1,44 @@
+package com.autumncode.owlapi.ontology.benchmark;
+
+import com.autumncode.owlapi.ontology.OntologyHelper;
+import org.openjdk.jmh.annotations.*;
+import org.semanticweb.owlapi.model.OWLAxiomChange;
+import org.semanticweb.owlapi.model.OWLOntology;
+import org.semanticweb.owlapi.model.OWLOntologyCreationException;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures building the change lists (createSubclass, associateIndividualWithClass and friends)
+ * without applying them to anything.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ConstructionBenchmark {
+    @Param({"10000", "100000", "1000000"})
+    int axioms;
+
+    @Param({SyntheticOntologies.GENEALOGY, SyntheticOntologies.TERMINATOR})
+    String shape;
+
+    OntologyHelper oh;
+    OWLOntology o;
+
+    @Setup(Level.Iteration)
+    public void setup() throws OWLOntologyCreationException {
+        oh = new OntologyHelper();
+        o = oh.createOntology(shape);
+    }
+
+    @Benchmark
+    public List<OWLAxiomChange> buildChanges() {
+        return SyntheticOntologies.GENEALOGY.equals(shape)
+                ? SyntheticOntologies.genealogy(oh, o, axioms)
+                : SyntheticOntologies.terminator(oh, o, axioms);
+    }
+}
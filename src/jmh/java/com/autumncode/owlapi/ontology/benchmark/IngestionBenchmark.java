@@ -0,0 +1,68 @@
+package com.autumncode.owlapi.ontology.benchmark;
+
+import com.autumncode.owlapi.ontology.IngestionPipeline;
+import com.autumncode.owlapi.ontology.OntologyHelper;
+import org.openjdk.jmh.annotations.*;
+import org.semanticweb.owlapi.io.StringDocumentSource;
+import org.semanticweb.owlapi.model.OWLOntology;
+import org.semanticweb.owlapi.model.OWLOntologyCreationException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures loading many small documents into one ontology through an IngestionPipeline.
+ * Parallelism 1 is the baseline of parsing one document at a time; the others show how
+ * throughput scales with cores.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class IngestionBenchmark {
+    static final String NS = "http://autumncode.com/ontologies/ingest.owl#";
+
+    @Param({"500"})
+    int documents;
+
+    @Param({"1", "4", "16"})
+    int parallelism;
+
+    List<String> payloads;
+    OntologyHelper oh;
+    OWLOntology target;
+
+    @Setup(Level.Trial)
+    public void payloads() {
+        payloads = new ArrayList<>(documents);
+        for (int d = 0; d < documents; d++) {
+            StringBuilder sb = new StringBuilder("Prefix(:=<" + NS + ">)\nOntology(<http://autumncode.com/ontologies/doc" + d + ".owl>\n");
+            for (int i = 0; i < 200; i++) {
+                sb.append("ClassAssertion(:C").append(i % 20).append(" :d").append(d).append('-').append(i).append(")\n");
+                sb.append("ObjectPropertyAssertion(:linked :d").append(d).append('-').append(i)
+                        .append(" :d").append(d).append('-').append((i + 1) % 200).append(")\n");
+            }
+            payloads.add(sb.append(")").toString());
+        }
+    }
+
+    @Setup(Level.Invocation)
+    public void setup() throws OWLOntologyCreationException {
+        oh = new OntologyHelper();
+        target = oh.createOntology("http://autumncode.com/ontologies/ingest.owl");
+    }
+
+    @Benchmark
+    public OWLOntology pipeline() throws InterruptedException {
+        try (IngestionPipeline pipeline = oh.ingestionPipeline(target, parallelism,
+                IngestionPipeline.DEFAULT_QUEUE_CAPACITY, 10_000)) {
+            for (String payload : payloads) {
+                pipeline.submit(new StringDocumentSource(payload));
+            }
+        }
+        return target;
+    }
+}
@@ -0,0 +1,51 @@
+package com.autumncode.owlapi.ontology.benchmark;
+
+import com.autumncode.owlapi.ontology.OntologyHelper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.semanticweb.owlapi.model.OWLAxiomChange;
+import org.semanticweb.owlapi.model.OWLOntology;
+import org.semanticweb.owlapi.model.OWLOntologyCreationException;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures what instrumentation costs on the hottest path, one change per applyChange call:
+ * with no registry, and with a Micrometer registry. To include JFR, add
+ * <code>-jvmArgsAppend -XX:StartFlightRecording</code> to the JMH arguments.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class InstrumentationBenchmark {
+    @Param({"none", "micrometer"})
+    String registry;
+
+    @Param({"100000"})
+    int axioms;
+
+    OntologyHelper oh;
+    List<OWLAxiomChange> changes;
+
+    @Setup(Level.Invocation)
+    public void setup() throws OWLOntologyCreationException {
+        oh = new OntologyHelper();
+        if ("micrometer".equals(registry)) {
+            oh.setMeterRegistry(new SimpleMeterRegistry());
+        }
+        OWLOntology o = oh.createOntology(SyntheticOntologies.TERMINATOR);
+        changes = SyntheticOntologies.terminator(oh, o, axioms);
+    }
+
+    @Benchmark
+    public OntologyHelper applyEach() {
+        for (OWLAxiomChange change : changes) {
+            oh.applyChange(change);
+        }
+        return oh;
+    }
+}
@@ -0,0 +1,63 @@
+package com.autumncode.owlapi.ontology.benchmark;
+
+import com.autumncode.owlapi.ontology.OntologyHelper;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.semanticweb.owlapi.model.OWLClass;
+import org.semanticweb.owlapi.model.OWLOntology;
+import org.semanticweb.owlapi.model.OWLOntologyCreationException;
+import org.semanticweb.owlapi.reasoner.OWLReasoner;
+import uk.ac.manchester.cs.jfact.JFactFactory;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the JFact calls the tests make: a consistency check on a fresh reasoner, and the
+ * "every class, every instance" walk from addSimpleIndividual and addTerminatorIndividuals.
+ *
+ * <p>The million-axiom fixture is left out of the default parameters because a single JFact
+ * classification of it takes far longer than a benchmark iteration should; pass
+ * <code>-p axioms=1000000</code> to run it anyway.</p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 3)
+@Fork(1)
+public class ReasonerBenchmark {
+    @Param({"10000", "100000"})
+    int axioms;
+
+    @Param({SyntheticOntologies.GENEALOGY, SyntheticOntologies.TERMINATOR})
+    String shape;
+
+    OWLOntology o;
+
+    @Setup(Level.Trial)
+    public void setup() throws OWLOntologyCreationException {
+        o = SyntheticOntologies.build(new OntologyHelper(), shape, axioms);
+    }
+
+    @Benchmark
+    public boolean isConsistent() {
+        OWLReasoner reasoner = new JFactFactory().createReasoner(o);
+        try {
+            return reasoner.isConsistent();
+        } finally {
+            reasoner.dispose();
+        }
+    }
+
+    @Benchmark
+    public void getInstances(Blackhole bh) {
+        OWLReasoner reasoner = new JFactFactory().createReasoner(o);
+        try {
+            for (OWLClass clazz : o.getClassesInSignature()) {
+                bh.consume(reasoner.getInstances(clazz, false).getFlattened());
+            }
+        } finally {
+            reasoner.dispose();
+        }
+    }
+}
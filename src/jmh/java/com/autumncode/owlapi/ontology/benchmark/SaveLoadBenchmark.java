@@ -0,0 +1,80 @@
+package com.autumncode.owlapi.ontology.benchmark;
+
+import com.autumncode.owlapi.ontology.OntologyHelper;
+import org.openjdk.jmh.annotations.*;
+import org.semanticweb.owlapi.formats.*;
+import org.semanticweb.owlapi.io.StreamDocumentSource;
+import org.semanticweb.owlapi.io.StreamDocumentTarget;
+import org.semanticweb.owlapi.model.OWLDocumentFormat;
+import org.semanticweb.owlapi.model.OWLException;
+import org.semanticweb.owlapi.model.OWLOntology;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures writeOntology and readOntology for each of the document formats the tutorial touches.
+ * Every read uses a fresh helper, because a manager refuses to load the same ontology twice.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class SaveLoadBenchmark {
+    @Param({"10000", "100000", "1000000"})
+    int axioms;
+
+    @Param({SyntheticOntologies.GENEALOGY, SyntheticOntologies.TERMINATOR})
+    String shape;
+
+    @Param({"rdfxml", "rio-rdfxml", "rio-turtle", "turtle", "owlxml", "functional"})
+    String format;
+
+    OntologyHelper oh;
+    OWLOntology o;
+    byte[] document;
+
+    static OWLDocumentFormat format(String name) {
+        switch (name) {
+            case "rdfxml":
+                return new RDFXMLDocumentFormat();
+            case "rio-rdfxml":
+                return new RioRDFXMLDocumentFormat();
+            case "rio-turtle":
+                return new RioTurtleDocumentFormat();
+            case "turtle":
+                return new TurtleDocumentFormat();
+            case "owlxml":
+                return new OWLXMLDocumentFormat();
+            case "functional":
+                return new FunctionalSyntaxDocumentFormat();
+            default:
+                throw new IllegalArgumentException("unknown format " + name);
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setup() throws OWLException {
+        oh = new OntologyHelper();
+        o = SyntheticOntologies.build(oh, shape, axioms);
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        oh.writeOntology(o, format(format), new StreamDocumentTarget(baos));
+        document = baos.toByteArray();
+    }
+
+    @Benchmark
+    public int writeOntology() throws OWLException {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream(document.length);
+        oh.writeOntology(o, format(format), new StreamDocumentTarget(baos));
+        return baos.size();
+    }
+
+    @Benchmark
+    public OWLOntology readOntology() throws OWLException {
+        return new OntologyHelper().readOntology(
+                new StreamDocumentSource(new ByteArrayInputStream(document), format(format)));
+    }
+}
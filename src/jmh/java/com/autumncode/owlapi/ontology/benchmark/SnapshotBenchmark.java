@@ -0,0 +1,53 @@
+package com.autumncode.owlapi.ontology.benchmark;
+
+import com.autumncode.owlapi.ontology.OntologyHelper;
+import org.openjdk.jmh.annotations.*;
+import org.semanticweb.owlapi.model.OWLException;
+import org.semanticweb.owlapi.model.OWLOntology;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures writeSnapshot and readSnapshot; compare with the rdfxml results of
+ * {@link SaveLoadBenchmark} for the same fixture.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class SnapshotBenchmark {
+    @Param({"10000", "100000", "1000000"})
+    int axioms;
+
+    @Param({SyntheticOntologies.GENEALOGY, SyntheticOntologies.TERMINATOR})
+    String shape;
+
+    OntologyHelper oh;
+    OWLOntology o;
+    byte[] snapshot;
+
+    @Setup(Level.Trial)
+    public void setup() throws OWLException {
+        oh = new OntologyHelper();
+        o = SyntheticOntologies.build(oh, shape, axioms);
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        oh.writeSnapshot(o, baos);
+        snapshot = baos.toByteArray();
+    }
+
+    @Benchmark
+    public int writeSnapshot() throws OWLException {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream(snapshot.length);
+        oh.writeSnapshot(o, baos);
+        return baos.size();
+    }
+
+    @Benchmark
+    public OWLOntology readSnapshot() throws OWLException {
+        return new OntologyHelper().readSnapshot(new ByteArrayInputStream(snapshot));
+    }
+}
@@ -0,0 +1,59 @@
+package com.autumncode.owlapi.ontology.benchmark;
+
+import com.autumncode.owlapi.ontology.OntologyHelper;
+import com.autumncode.owlapi.ontology.StreamingOntologyWriter;
+import org.openjdk.jmh.annotations.*;
+import org.semanticweb.owlapi.formats.FunctionalSyntaxDocumentFormat;
+import org.semanticweb.owlapi.io.StreamDocumentTarget;
+import org.semanticweb.owlapi.io.StringDocumentTarget;
+import org.semanticweb.owlapi.model.OWLException;
+import org.semanticweb.owlapi.model.OWLOntology;
+
+import java.io.OutputStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the streaming functional-syntax writer with writeOntology, both to a discarding
+ * stream and (as dumpOWL does) to a String. The GC profiler's allocation figures are the
+ * interesting part.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class StreamingWriteBenchmark {
+    @Param({"100000", "1000000"})
+    int axioms;
+
+    @Param({"NONE", "GZIP"})
+    StreamingOntologyWriter.Compression compression;
+
+    OntologyHelper oh;
+    OWLOntology o;
+
+    @Setup(Level.Trial)
+    public void setup() throws OWLException {
+        oh = new OntologyHelper();
+        o = SyntheticOntologies.build(oh, SyntheticOntologies.GENEALOGY, axioms);
+    }
+
+    @Benchmark
+    public long streamingWriter() throws OWLException {
+        return oh.streamingWriter(o).compression(compression).writeTo(OutputStream.nullOutputStream());
+    }
+
+    @Benchmark
+    public OWLOntology writeOntologyToStream() throws OWLException {
+        oh.writeOntology(o, new FunctionalSyntaxDocumentFormat(), new StreamDocumentTarget(OutputStream.nullOutputStream()));
+        return o;
+    }
+
+    @Benchmark
+    public int writeOntologyToString() throws OWLException {
+        StringDocumentTarget target = new StringDocumentTarget();
+        oh.writeOntology(o, new FunctionalSyntaxDocumentFormat(), target);
+        return target.toString().length();
+    }
+}
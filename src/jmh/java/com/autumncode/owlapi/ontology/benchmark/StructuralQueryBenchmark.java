@@ -0,0 +1,118 @@
+package com.autumncode.owlapi.ontology.benchmark;
+
+import com.autumncode.owlapi.ontology.OntologyHelper;
+import com.autumncode.owlapi.ontology.StructuralIndex;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.semanticweb.owlapi.model.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the {@link StructuralIndex} queries with the scans they replace, on the genealogy
+ * fixture plus <code>classes</code> extra classes, each with a hasFather/hasMother restriction
+ * and a disjointness axiom against its neighbour.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class StructuralQueryBenchmark {
+    private static final String NS = SyntheticOntologies.GENEALOGY + "#";
+
+    @Param({"10000", "100000"})
+    int axioms;
+
+    @Param({"1000"})
+    int classes;
+
+    OntologyHelper oh;
+    OWLOntology o;
+    StructuralIndex index;
+    OWLObjectProperty hasFather;
+    OWLClass male;
+    OWLClass sample;
+    OWLIndividual child;
+
+    @Setup(Level.Trial)
+    public void setup() throws OWLOntologyCreationException {
+        oh = new OntologyHelper();
+        o = SyntheticOntologies.build(oh, SyntheticOntologies.GENEALOGY, axioms);
+        hasFather = oh.createObjectProperty(NS + "hasFather");
+        OWLObjectProperty hasMother = oh.createObjectProperty(NS + "hasMother");
+        male = oh.createClass(NS + "Male");
+        OWLClass female = oh.createClass(NS + "Female");
+        List<OWLAxiomChange> changes = new ArrayList<>();
+        for (int i = 0; i < classes; i++) {
+            OWLClass clazz = oh.createClass(NS + "Class" + i);
+            changes.add(oh.associateObjectPropertyWithClass(o, i % 2 == 0 ? hasFather : hasMother, clazz, i % 3 == 0 ? male : female));
+            if (i > 0) {
+                changes.add(oh.addDisjointClass(o, clazz, oh.createClass(NS + "Class" + (i - 1))));
+            }
+        }
+        oh.applyChange(changes.toArray(new OWLAxiomChange[0]));
+        sample = oh.createClass(NS + "Class" + (classes / 2));
+        child = oh.createIndividual(NS + "child1");
+        index = oh.structuralIndex(o);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        index.close();
+    }
+
+    @Benchmark
+    public void holdersScan(Blackhole bh) {
+        for (OWLSubClassOfAxiom axiom : o.getAxioms(AxiomType.SUBCLASS_OF)) {
+            if (!axiom.getSubClass().isAnonymous()) {
+                for (OWLClassExpression conjunct : axiom.getSuperClass().asConjunctSet()) {
+                    if (conjunct instanceof OWLObjectSomeValuesFrom) {
+                        OWLObjectSomeValuesFrom restriction = (OWLObjectSomeValuesFrom) conjunct;
+                        if (restriction.getProperty().equals(hasFather) && restriction.getFiller().equals(male)) {
+                            bh.consume(axiom.getSubClass());
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    @Benchmark
+    public void holdersIndexed(Blackhole bh) {
+        index.getRestrictionHolders(hasFather, male).forEach(bh::consume);
+    }
+
+    @Benchmark
+    public void disjointScan(Blackhole bh) {
+        for (OWLDisjointClassesAxiom axiom : o.getDisjointClassesAxioms(sample)) {
+            for (OWLClass clazz : axiom.getClassesInSignature()) {
+                if (!clazz.equals(sample)) {
+                    bh.consume(clazz);
+                }
+            }
+        }
+    }
+
+    @Benchmark
+    public void disjointIndexed(Blackhole bh) {
+        index.getDisjointClasses(sample).forEach(bh::consume);
+    }
+
+    @Benchmark
+    public void valuesScan(Blackhole bh) {
+        for (OWLObjectPropertyAssertionAxiom axiom : o.getObjectPropertyAssertionAxioms(child)) {
+            if (axiom.getProperty().equals(hasFather)) {
+                bh.consume(axiom.getObject());
+            }
+        }
+    }
+
+    @Benchmark
+    public void valuesIndexed(Blackhole bh) {
+        index.getObjectPropertyValues(child, hasFather).forEach(bh::consume);
+    }
+}
@@ -0,0 +1,114 @@
+package com.autumncode.owlapi.ontology.benchmark;
+
+import com.autumncode.owlapi.ontology.OntologyHelper;
+import org.semanticweb.owlapi.model.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Builds scaled versions of the ontologies used in <code>ClassTest</code>, so that the benchmarks
+ * measure the same shapes the tutorial (and everyone who copied it) actually produces.
+ *
+ * <p>The sizes are approximate: a fixture is grown in whole "units" (a family, or a trio of
+ * terminator individuals) until it has at least the requested number of axioms.</p>
+ */
+public final class SyntheticOntologies {
+    public static final String GENEALOGY = "http://autumncode.com/ontologies/genealogy.owl";
+    public static final String TERMINATOR = "http://autumncode.com/ontologies/terminator.owl";
+
+    private SyntheticOntologies() {
+    }
+
+    /**
+     * The genealogy shape from <code>simpleParentage</code>: Male and Female are disjoint
+     * subclasses of Human, every Human has a father and a mother, and each family unit is a
+     * father, a mother and a child linked through hasFather/hasMother (seven axioms).
+     *
+     * @param oh     the helper to build the changes with
+     * @param o      the target ontology
+     * @param axioms the approximate number of axioms to produce
+     * @return the changes, not yet applied
+     */
+    public static List<OWLAxiomChange> genealogy(OntologyHelper oh, OWLOntology o, int axioms) {
+        List<OWLAxiomChange> changes = new ArrayList<>(axioms + 16);
+        OWLClass human = oh.createClass(GENEALOGY + "#Human");
+        OWLClass male = oh.createClass(GENEALOGY + "#Male");
+        OWLClass female = oh.createClass(GENEALOGY + "#Female");
+        OWLObjectProperty hasFather = oh.createObjectProperty(GENEALOGY + "#hasFather");
+        OWLObjectProperty hasMother = oh.createObjectProperty(GENEALOGY + "#hasMother");
+        changes.add(oh.createSubclass(o, male, human));
+        changes.add(oh.createSubclass(o, female, human));
+        changes.add(oh.addDisjointClass(o, female, male));
+        changes.add(oh.associateObjectPropertyWithClass(o, hasFather, human, male));
+        changes.add(oh.associateObjectPropertyWithClass(o, hasMother, human, female));
+
+        for (int family = 0; changes.size() < axioms; family++) {
+            OWLIndividual father = oh.createIndividual(GENEALOGY + "#father" + family);
+            OWLIndividual mother = oh.createIndividual(GENEALOGY + "#mother" + family);
+            OWLIndividual child = oh.createIndividual(GENEALOGY + "#child" + family);
+            changes.add(oh.associateIndividualWithClass(o, male, father));
+            changes.add(oh.associateIndividualWithClass(o, female, mother));
+            changes.add(oh.associateIndividualWithClass(o, family % 2 == 0 ? male : female, child));
+            changes.add(oh.addObjectproperty(o, child, hasFather, father));
+            changes.add(oh.addObjectproperty(o, child, hasMother, mother));
+            if (family > 0) {
+                // chain the generations together so the ABox isn't a forest of tiny trees
+                OWLIndividual grandfather = oh.createIndividual(GENEALOGY + "#father" + (family - 1));
+                OWLIndividual grandmother = oh.createIndividual(GENEALOGY + "#mother" + (family - 1));
+                changes.add(oh.addObjectproperty(o, father, hasFather, grandfather));
+                changes.add(oh.addObjectproperty(o, father, hasMother, grandmother));
+            }
+        }
+        return changes;
+    }
+
+    /**
+     * The terminator shape from <code>addTerminatorIndividuals</code>: Terminator is a subclass
+     * of both Person and Robot, and individuals are spread over all three classes.
+     *
+     * @param oh     the helper to build the changes with
+     * @param o      the target ontology
+     * @param axioms the approximate number of axioms to produce
+     * @return the changes, not yet applied
+     */
+    public static List<OWLAxiomChange> terminator(OntologyHelper oh, OWLOntology o, int axioms) {
+        List<OWLAxiomChange> changes = new ArrayList<>(axioms + 4);
+        OWLClass person = oh.createClass(TERMINATOR + "#Person");
+        OWLClass robot = oh.createClass(TERMINATOR + "#Robot");
+        OWLClass terminator = oh.createClass(TERMINATOR + "#Terminator");
+        OWLDataProperty killsHumans = oh.createDataProperty(TERMINATOR + "#killsHumans");
+        changes.add(oh.createSubclass(o, terminator, person));
+        changes.add(oh.createSubclass(o, terminator, robot));
+
+        for (int unit = 0; changes.size() < axioms; unit++) {
+            OWLIndividual sarah = oh.createIndividual(TERMINATOR + "#sarah" + unit);
+            OWLIndividual tank = oh.createIndividual(TERMINATOR + "#tank" + unit);
+            OWLIndividual t800 = oh.createIndividual(TERMINATOR + "#t800-" + unit);
+            changes.add(oh.associateIndividualWithClass(o, person, sarah));
+            changes.add(oh.associateIndividualWithClass(o, robot, tank));
+            changes.add(oh.associateIndividualWithClass(o, terminator, t800));
+            changes.add(oh.addDataToIndividual(o, t800, killsHumans, true));
+        }
+        return changes;
+    }
+
+    /**
+     * Creates an ontology and fills it with one of the fixtures.
+     *
+     * @param oh     the helper that owns the ontology
+     * @param shape  either {@link #GENEALOGY} or {@link #TERMINATOR}
+     * @param axioms the approximate number of axioms
+     * @return the populated ontology
+     * @throws OWLOntologyCreationException if the ontology can't be created
+     */
+    public static OWLOntology build(OntologyHelper oh, String shape, int axioms)
+            throws OWLOntologyCreationException {
+        OWLOntology o = oh.createOntology(shape);
+        List<OWLAxiomChange> changes = GENEALOGY.equals(shape)
+                ? genealogy(oh, o, axioms)
+                : terminator(oh, o, axioms);
+        oh.applyChange(changes.toArray(new OWLAxiomChange[changes.size()]));
+        return o;
+    }
+}
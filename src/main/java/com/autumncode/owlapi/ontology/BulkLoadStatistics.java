@@ -0,0 +1,48 @@
+package com.autumncode.owlapi.ontology;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * What a {@link BulkLoader} did: how many changes it applied, in how many chunks, and how long
+ * it took. The elapsed time covers the whole life of the loader (including producing the input),
+ * while the apply time is only the time spent committing chunks.
+ */
+public class BulkLoadStatistics {
+    private final long axioms;
+    private final long chunks;
+    private final long elapsedNanos;
+    private final long applyNanos;
+
+    BulkLoadStatistics(long axioms, long chunks, long elapsedNanos, long applyNanos) {
+        this.axioms = axioms;
+        this.chunks = chunks;
+        this.elapsedNanos = elapsedNanos;
+        this.applyNanos = applyNanos;
+    }
+
+    public long getAxioms() {
+        return axioms;
+    }
+
+    public long getChunks() {
+        return chunks;
+    }
+
+    public long getElapsed(TimeUnit unit) {
+        return unit.convert(elapsedNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public long getApplyTime(TimeUnit unit) {
+        return unit.convert(applyNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public double getAxiomsPerSecond() {
+        return elapsedNanos == 0 ? 0 : axioms * 1e9 / elapsedNanos;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d axioms in %d chunks, %d ms (%.0f axioms/sec)",
+                axioms, chunks, getElapsed(TimeUnit.MILLISECONDS), getAxiomsPerSecond());
+    }
+}
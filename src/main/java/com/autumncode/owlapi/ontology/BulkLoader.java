@@ -0,0 +1,191 @@
+package com.autumncode.owlapi.ontology;
+
+import org.semanticweb.owlapi.model.*;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Loads large numbers of axioms into a single ontology in bounded chunks.
+ *
+ * <p><code>applyChange</code> hands the manager one list per call, and the manager broadcasts
+ * that whole list to every change listener. That's fine for the handful of changes the tests
+ * make, but loading millions of facts that way means millions of change objects in flight and
+ * an event per fact. A loader holds at most one chunk of changes at a time, no matter how
+ * large the input is, and (by default) applies each chunk straight to the ontology so nothing
+ * is broadcast at all.</p>
+ *
+ * <p>Because listeners aren't told about suppressed changes, anything that tracks the ontology
+ * through the manager - a reasoner created before the load, for example - is stale afterwards
+ * and should be recreated. The helper's own reasoner sessions are discarded when the load
+ * finishes.</p>
+ *
+ * <pre>
+ * BulkLoader loader = oh.bulkLoader(o);
+ * loader.addAxioms(facts);
+ * System.out.println(loader.finish());
+ * </pre>
+ */
+public class BulkLoader implements AutoCloseable {
+    public static final int DEFAULT_CHUNK_SIZE = 10_000;
+
+    private final OntologyHelper helper;
+    private final OWLOntology ontology;
+    private final int chunkSize;
+    private final boolean notifyListeners;
+    private final List<OWLOntologyChange> chunk;
+    private final long started = System.nanoTime();
+    private long changes;
+    private long chunks;
+    private long applyNanos;
+    // a commit was attempted, so the ontology may have changed even if it failed
+    private boolean applied;
+    private BulkLoadStatistics statistics;
+
+    BulkLoader(OntologyHelper helper, OWLOntology ontology, int chunkSize, boolean notifyListeners) {
+        if (chunkSize < 1) {
+            throw new IllegalArgumentException("chunk size must be positive, was " + chunkSize);
+        }
+        this.helper = helper;
+        this.ontology = ontology;
+        this.chunkSize = chunkSize;
+        this.notifyListeners = notifyListeners;
+        this.chunk = new ArrayList<>(chunkSize);
+    }
+
+    /**
+     * Queues an axiom for addition; the current chunk is committed once it's full.
+     *
+     * @param axiom the axiom to add
+     * @return this loader
+     */
+    public BulkLoader add(OWLAxiom axiom) {
+        return add(new AddAxiom(ontology, axiom));
+    }
+
+    /**
+     * Queues a change built by one of the helper methods, such as <code>createSubclass</code>.
+     *
+     * @param change the change to apply
+     * @return this loader
+     */
+    public BulkLoader add(OWLAxiomChange change) {
+        checkOpen();
+        if (change.getOntology() != ontology) {
+            throw new IllegalArgumentException("change targets " + change.getOntology().getOntologyID()
+                    + ", this loader targets " + ontology.getOntologyID());
+        }
+        chunk.add(change);
+        if (chunk.size() >= chunkSize) {
+            flush();
+        }
+        return this;
+    }
+
+    public BulkLoader addAxioms(Iterator<? extends OWLAxiom> axioms) {
+        while (axioms.hasNext()) {
+            add(axioms.next());
+        }
+        return this;
+    }
+
+    /**
+     * Consumes a stream of axioms. The stream is pulled one element at a time, so it can be
+     * backed by a file, a cursor or a generator without ever being collected.
+     *
+     * @param axioms the axioms to add
+     * @return this loader
+     */
+    public BulkLoader addAxioms(Stream<? extends OWLAxiom> axioms) {
+        return addAxioms(axioms.iterator());
+    }
+
+    public BulkLoader addChanges(Iterator<? extends OWLAxiomChange> changes) {
+        while (changes.hasNext()) {
+            add(changes.next());
+        }
+        return this;
+    }
+
+    public BulkLoader addChanges(Stream<? extends OWLAxiomChange> changes) {
+        return addChanges(changes.iterator());
+    }
+
+    /**
+     * Commits whatever is in the current chunk. If the commit fails, the chunk is dropped (some
+     * of its changes may have been applied) so that later chunks don't fail on it too.
+     */
+    public void flush() {
+        checkOpen();
+        if (chunk.isEmpty()) {
+            return;
+        }
+        long start = System.nanoTime();
+        applied = true;
+        try {
+            helper.commit(ontology, chunk, notifyListeners);
+            changes += chunk.size();
+            chunks++;
+        } finally {
+            applyNanos += System.nanoTime() - start;
+            chunk.clear();
+        }
+    }
+
+    /**
+     * Drops the changes queued since the last flush without applying them.
+     */
+    public void discard() {
+        chunk.clear();
+    }
+
+    /**
+     * Commits the final chunk and reports on the load. Calling this more than once returns
+     * the same statistics.
+     *
+     * @return how many changes were applied, and how quickly
+     */
+    public BulkLoadStatistics finish() {
+        if (statistics == null) {
+            flush();
+            complete();
+        }
+        return statistics;
+    }
+
+    /**
+     * Gives up on the load: drops the changes queued since the last flush and closes the loader.
+     * Chunks already committed stay in the ontology, and are reported to the helper as
+     * {@link #finish()} would. Does nothing if the loader is already closed.
+     */
+    public void abort() {
+        if (statistics == null) {
+            chunk.clear();
+            complete();
+        }
+    }
+
+    private void complete() {
+        statistics = new BulkLoadStatistics(changes, chunks, System.nanoTime() - started, applyNanos);
+        if (!notifyListeners && applied) {
+            helper.ontologyReloaded(ontology);
+        }
+    }
+
+    @Override
+    public void close() {
+        finish();
+    }
+
+    public OWLOntology getOntology() {
+        return ontology;
+    }
+
+    private void checkOpen() {
+        if (statistics != null) {
+            throw new IllegalStateException("bulk loader has been closed");
+        }
+    }
+}
@@ -0,0 +1,561 @@
+package com.autumncode.owlapi.ontology;
+
+import org.semanticweb.owlapi.model.*;
+
+import java.io.*;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+
+import static com.autumncode.owlapi.ontology.SnapshotFormat.*;
+
+/**
+ * Persists an ontology as a base snapshot plus an append-only log of the changes applied since,
+ * so a checkpoint costs as much as the changes made since the last one rather than a full
+ * write of the ontology.
+ *
+ * <pre>
+ * ChangeLog log = oh.recordChanges(o, directory);     // first run: writes the base
+ * oh.applyChange(...);                                // appended to the log
+ * log.checkpoint();                                   // forces the log to disk
+ *
+ * ChangeLog log = oh.openChangeLog(directory);        // later: base plus replayed log
+ * OWLOntology o = log.getOntology();
+ * </pre>
+ *
+ * <p>The directory holds <code>base.owls</code>, a {@link SnapshotFormat snapshot}, and
+ * <code>changes.log</code>, which uses the same records. The log is memory-mapped and grows by
+ * remapping; every batch of changes ends with a COMMIT record, and replay stops at the last
+ * one, so a batch torn by a crash is dropped as a whole.</p>
+ *
+ * <p>Once the log passes the compaction threshold, the log is rotated: the ontology's axioms are
+ * copied, the log is renamed <code>changes.log.prev</code> and a new one started, and the copy is
+ * written as the new base on a background thread, after which the previous log is deleted. The
+ * change broadcast only pays for the copy. Until the new base is in place, opening the directory
+ * replays the old base, the previous log and the new log, in that order; replaying the previous
+ * log over a base that already contains it changes nothing, so it's safe either way.</p>
+ *
+ * <p>The log hears about changes through the manager, so changes applied without notifying
+ * listeners (bulk loads, streaming loads) can't be logged one by one; when the helper reports
+ * such a reload, the log compacts instead. So do changes the log has no record for, such as
+ * ontology annotations.</p>
+ */
+public class ChangeLog implements AutoCloseable {
+    public static final long DEFAULT_COMPACT_THRESHOLD = 64L * 1024 * 1024;
+    static final String BASE = "base.owls";
+    static final String LOG = "changes.log";
+    static final String PREVIOUS_LOG = "changes.log.prev";
+
+    private final OntologyHelper helper;
+    private final OWLOntology ontology;
+    private final Path directory;
+    private final long compactThreshold;
+    private final OWLOntologyChangeListener listener = this::changed;
+    private final Consumer<OWLOntology> reloadListener = this::reloaded;
+    private MappedLogOutputStream log;
+    private SnapshotWriter writer;
+    private long replayed;
+    private long replayedTo;
+    private boolean closed;
+    private boolean compacting;
+    private boolean compactAgain;
+    private ExecutorService compactor;
+    private Exception compactionFailure;
+
+    private ChangeLog(OntologyHelper helper, OWLOntology ontology, Path directory, long compactThreshold) {
+        this.helper = helper;
+        this.ontology = ontology;
+        this.directory = directory;
+        this.compactThreshold = compactThreshold;
+    }
+
+    /**
+     * Starts logging an ontology into a directory, replacing anything already there with a
+     * base snapshot of the ontology as it is now.
+     */
+    static ChangeLog record(OntologyHelper helper, OWLOntology o, Path directory, long compactThreshold)
+            throws IOException {
+        Files.createDirectories(directory);
+        ChangeLog changeLog = new ChangeLog(helper, o, directory, compactThreshold);
+        changeLog.compact();
+        changeLog.listen();
+        return changeLog;
+    }
+
+    /**
+     * Loads the base snapshot from a directory, replays the log over it, and carries on logging.
+     */
+    static ChangeLog open(OntologyHelper helper, Path directory, long compactThreshold)
+            throws IOException, OWLOntologyCreationException {
+        OWLOntology o;
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(directory.resolve(BASE)))) {
+            o = helper.readSnapshot(in);
+        }
+        ChangeLog changeLog = new ChangeLog(helper, o, directory, compactThreshold);
+        Path previous = directory.resolve(PREVIOUS_LOG);
+        boolean rotated = Files.exists(previous);
+        if (rotated) {
+            // a rotation whose base wasn't written (or whose previous log wasn't deleted)
+            try (MappedFileInputStream in = new MappedFileInputStream(previous)) {
+                changeLog.replay(in, previous);
+            }
+        }
+        changeLog.replay();
+        if (rotated) {
+            changeLog.compact();
+        }
+        changeLog.listen();
+        return changeLog;
+    }
+
+    private void listen() {
+        helper.m.addOntologyChangeListener(listener);
+        helper.reloadListeners.add(reloadListener);
+    }
+
+    /**
+     * Applies the committed batches in the log to the ontology, then reopens the log for
+     * appending just after the last of them.
+     */
+    private void replay() throws IOException, OWLOntologyCreationException {
+        Path file = directory.resolve(LOG);
+        long end = 0;
+        SnapshotReader reader = null;
+        if (Files.exists(file) && Files.size(file) > 0) {
+            try (MappedFileInputStream in = new MappedFileInputStream(file)) {
+                reader = replay(in, file);
+                end = reader == null ? 0 : replayedTo;
+            }
+        }
+        log = new MappedLogOutputStream(file, end);
+        writer = new SnapshotWriter(log);
+        if (reader == null) {
+            writeHeader();
+        } else {
+            writer.continueDictionary(reader);
+        }
+    }
+
+    /**
+     * Replays one log file.
+     *
+     * @return the reader, with the dictionary of the committed batches, or null if the file is
+     * empty; {@link #replayedTo} is set to the position just after the last COMMIT record
+     */
+    private SnapshotReader replay(MappedFileInputStream in, Path file) throws IOException, OWLOntologyCreationException {
+        if (Files.size(file) == 0) {
+            return null;
+        }
+        DataInputStream data = new DataInputStream(in);
+        if (data.readInt() != LOG_MAGIC || data.readUnsignedShort() > LOG_VERSION) {
+            throw new IOException(file + " is not a change log");
+        }
+        SnapshotReader reader = new SnapshotReader(in, helper.df);
+        replayedTo = replay(reader, in, in.position());
+        return reader;
+    }
+
+    /**
+     * @return the position just after the last COMMIT record
+     */
+    private long replay(SnapshotReader reader, MappedFileInputStream in, long committed)
+            throws IOException, OWLOntologyCreationException {
+        List<OWLOntologyChange> batch = new ArrayList<>();
+        // IRIs defined by a torn batch are forgotten along with it, since appending starts over
+        // from the last commit
+        int namespaces = reader.getNamespaces().size();
+        int iris = reader.getIRIs().size();
+        try (BulkLoader loader = helper.bulkLoader(ontology)) {
+            boolean remove = false;
+            for (int tag = next(reader); tag != END; tag = next(reader)) {
+                switch (tag) {
+                    case NAMESPACE:
+                    case IRI_DEFINITION:
+                        reader.readDefinition(tag);
+                        break;
+                    case REMOVE:
+                        remove = true;
+                        break;
+                    case COMMIT:
+                        for (OWLOntologyChange change : batch) {
+                            if (change.isAxiomChange()) {
+                                loader.add((OWLAxiomChange) change);
+                            } else {
+                                loader.flush();
+                                helper.m.applyChange(change);
+                            }
+                        }
+                        replayed += batch.size();
+                        batch.clear();
+                        committed = in.position();
+                        namespaces = reader.getNamespaces().size();
+                        iris = reader.getIRIs().size();
+                        break;
+                    case IMPORT: {
+                        OWLImportsDeclaration declaration = helper.df.getOWLImportsDeclaration(reader.readImport());
+                        batch.add(remove ? new RemoveImport(ontology, declaration) : new AddImport(ontology, declaration));
+                        remove = false;
+                        break;
+                    }
+                    case RESIDUAL: {
+                        OWLAxiom axiom = loggedAxiom(reader.parseResidual().getAxioms());
+                        batch.add(remove ? new RemoveAxiom(ontology, axiom) : new AddAxiom(ontology, axiom));
+                        remove = false;
+                        break;
+                    }
+                    default:
+                        OWLAxiom axiom = reader.readAxiom(tag);
+                        if (axiom == null) {
+                            throw new IOException("unknown change log record " + tag);
+                        }
+                        batch.add(remove ? new RemoveAxiom(ontology, axiom) : new AddAxiom(ontology, axiom));
+                        remove = false;
+                }
+            }
+        }
+        reader.getNamespaces().subList(namespaces, reader.getNamespaces().size()).clear();
+        reader.getIRIs().subList(iris, reader.getIRIs().size()).clear();
+        return committed;
+    }
+
+    /**
+     * Picks the one axiom a residual change record was written for. Older logs were rendered
+     * with declarations added for undeclared entities; those are dropped, unless the logged
+     * axiom was itself a declaration.
+     */
+    private static OWLAxiom loggedAxiom(Collection<OWLAxiom> parsed) throws IOException {
+        if (parsed.size() == 1) {
+            return parsed.iterator().next();
+        }
+        OWLAxiom logged = null;
+        for (OWLAxiom axiom : parsed) {
+            if (!axiom.isOfType(AxiomType.DECLARATION)) {
+                if (logged != null) {
+                    throw new IOException("change log record holds more than one axiom");
+                }
+                logged = axiom;
+            }
+        }
+        if (logged == null) {
+            throw new IOException("change log record holds no single axiom");
+        }
+        return logged;
+    }
+
+    /**
+     * Reads the next tag, treating a log that ends without padding as ending there.
+     */
+    private static int next(SnapshotReader reader) throws IOException {
+        try {
+            return reader.next();
+        } catch (EOFException e) {
+            return END;
+        } catch (IOException e) {
+            if (e.getCause() instanceof EOFException) {
+                return END;
+            }
+            throw e;
+        }
+    }
+
+    private void writeHeader() throws IOException {
+        DataOutputStream data = new DataOutputStream(log);
+        data.writeInt(LOG_MAGIC);
+        data.writeShort(LOG_VERSION);
+    }
+
+    private synchronized void changed(List<? extends OWLOntologyChange> changes) throws OWLException {
+        if (closed) {
+            return;
+        }
+        rethrowCompactionFailure();
+        boolean logged = false;
+        boolean unlogged = false;
+        try {
+            for (OWLOntologyChange change : changes) {
+                if (change.getOntology() != ontology) {
+                    continue;
+                }
+                if (change.isAxiomChange()) {
+                    if (change.isRemoveAxiom()) {
+                        writer.writeMarker(REMOVE);
+                    }
+                    if (!writer.writeAxiom(change.getAxiom())) {
+                        writer.writeResidual(Collections.singleton(change.getAxiom()),
+                                Collections.<OWLAnnotation>emptyList());
+                    }
+                    logged = true;
+                } else if (change.isImportChange()) {
+                    if (change instanceof RemoveImport) {
+                        writer.writeMarker(REMOVE);
+                    }
+                    writer.writeImport(((ImportChange) change).getImportDeclaration().getIRI());
+                    logged = true;
+                } else {
+                    unlogged = true;
+                }
+            }
+            if (logged) {
+                writer.writeMarker(COMMIT);
+            }
+            if (unlogged || compactAgain || log.position() > compactThreshold) {
+                rotate();
+            }
+        } catch (IOException e) {
+            throw new OWLOntologyStorageException("could not append to change log in " + directory, e);
+        }
+    }
+
+    private synchronized void reloaded(OWLOntology o) {
+        if (o == ontology && !closed) {
+            try {
+                rotate();
+            } catch (IOException e) {
+                throw new UncheckedIOException("could not compact change log in " + directory, e);
+            }
+        }
+    }
+
+    /**
+     * Writes the ontology as a new base snapshot and empties the log. The base is written to a
+     * temporary file and moved into place, so a crash leaves either the old base and the whole
+     * log, or the new base (and a log it already contains, which replays harmlessly).
+     *
+     * @throws IOException if either file can't be written
+     */
+    public synchronized void compact() throws IOException {
+        awaitCompaction();
+        writeBase(ontology.getOntologyID(), ontology.getImportsDeclarations(), ontology.getAxioms(),
+                ontology.getAnnotations());
+        if (log != null) {
+            log.close();
+        }
+        Files.deleteIfExists(directory.resolve(LOG));
+        Files.deleteIfExists(directory.resolve(PREVIOUS_LOG));
+        startLog();
+        compactAgain = false;
+    }
+
+    /**
+     * Starts a new log and hands a copy of the ontology to the background thread to write as the
+     * new base. If a rotation is still being written, this one waits for the next change (or
+     * {@link #close()}); a previous log left by a failed rotation means compacting here instead,
+     * since it can't be replaced.
+     */
+    private void rotate() throws IOException {
+        if (compacting) {
+            compactAgain = true;
+            return;
+        }
+        if (Files.exists(directory.resolve(PREVIOUS_LOG))) {
+            compact();
+            return;
+        }
+        OWLOntologyID id = ontology.getOntologyID();
+        List<OWLImportsDeclaration> imports = new ArrayList<>(ontology.getImportsDeclarations());
+        List<OWLAxiom> axioms = new ArrayList<>(ontology.getAxioms());
+        List<OWLAnnotation> annotations = new ArrayList<>(ontology.getAnnotations());
+        log.close();
+        Files.move(directory.resolve(LOG), directory.resolve(PREVIOUS_LOG), StandardCopyOption.ATOMIC_MOVE);
+        startLog();
+        compacting = true;
+        compactAgain = false;
+        if (compactor == null) {
+            compactor = Executors.newSingleThreadExecutor(r -> {
+                Thread thread = new Thread(r, "change-log-compactor");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        compactor.execute(() -> {
+            Exception failure = null;
+            try {
+                writeBase(id, imports, axioms, annotations);
+                Files.delete(directory.resolve(PREVIOUS_LOG));
+            } catch (IOException | RuntimeException e) {
+                failure = e;
+            }
+            synchronized (this) {
+                compactionFailure = failure;
+                compacting = false;
+                notifyAll();
+            }
+        });
+    }
+
+    /**
+     * Writes a base to a temporary file and moves it into place.
+     */
+    private void writeBase(OWLOntologyID id, Collection<OWLImportsDeclaration> imports,
+                           Collection<OWLAxiom> axioms, Collection<OWLAnnotation> annotations) throws IOException {
+        Path temporary = directory.resolve(BASE + ".tmp");
+        try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(temporary))) {
+            new SnapshotWriter(out).writeOntology(id, imports, axioms, annotations);
+        } catch (OWLOntologyStorageException e) {
+            throw new IOException(e);
+        }
+        Files.move(temporary, directory.resolve(BASE), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private void startLog() throws IOException {
+        log = new MappedLogOutputStream(directory.resolve(LOG), 0);
+        writer = new SnapshotWriter(log);
+        writeHeader();
+    }
+
+    private void awaitCompaction() {
+        boolean interrupted = false;
+        while (compacting) {
+            try {
+                wait();
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Reports a background compaction that failed. Its previous log is still there, so nothing
+     * is lost, and the next rotation compacts in the foreground.
+     */
+    private void rethrowCompactionFailure() throws OWLOntologyStorageException {
+        if (compactionFailure != null) {
+            Exception failure = compactionFailure;
+            compactionFailure = null;
+            throw new OWLOntologyStorageException("could not compact change log in " + directory, failure);
+        }
+    }
+
+    /**
+     * Forces everything logged so far to disk. Cheap: only the pages written since the last
+     * checkpoint are flushed.
+     */
+    public synchronized void checkpoint() throws OWLOntologyStorageException {
+        rethrowCompactionFailure();
+        log.force();
+    }
+
+    public OWLOntology getOntology() {
+        return ontology;
+    }
+
+    /**
+     * @return the bytes in the log since the last compaction
+     */
+    public synchronized long size() {
+        return log.position();
+    }
+
+    /**
+     * @return how many changes were replayed from the log when it was opened
+     */
+    public long getReplayedChanges() {
+        return replayed;
+    }
+
+    /**
+     * Stops logging, waits for a background compaction to finish, and forces the log to disk.
+     * The directory can be opened again later.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (!closed) {
+            closed = true;
+            helper.m.removeOntologyChangeListener(listener);
+            helper.reloadListeners.remove(reloadListener);
+            awaitCompaction();
+            if (compactAgain) {
+                // a change the log has no record for arrived while the last rotation was running
+                compact();
+            }
+            log.close();
+            if (compactor != null) {
+                compactor.shutdown();
+            }
+            if (compactionFailure != null) {
+                Exception failure = compactionFailure;
+                compactionFailure = null;
+                throw new IOException("could not compact change log in " + directory, failure);
+            }
+        }
+    }
+
+    /**
+     * Appends to a memory-mapped file, mapping a larger region whenever the current one fills.
+     * The file is kept at the mapped size, zero-padded past the end of the data; a zero byte
+     * reads as an END tag, so replay stops there.
+     */
+    static class MappedLogOutputStream extends OutputStream {
+        static final long INITIAL_SIZE = 1024 * 1024;
+
+        private final FileChannel channel;
+        private MappedByteBuffer buffer;
+        private long position;
+
+        MappedLogOutputStream(Path file, long position) throws IOException {
+            this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            this.position = position;
+            map(Math.max(INITIAL_SIZE, Math.max(channel.size(), position + 1)));
+            // clear whatever a torn batch left after the last commit
+            byte[] zeros = new byte[8192];
+            buffer.position((int) position);
+            while (buffer.hasRemaining()) {
+                buffer.put(zeros, 0, Math.min(zeros.length, buffer.remaining()));
+            }
+        }
+
+        private void map(long size) throws IOException {
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("change log is over 2GB; compact it more often");
+            }
+            buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        }
+
+        private void ensure(int bytes) throws IOException {
+            if (position + bytes > buffer.capacity()) {
+                map(Math.max(buffer.capacity() * 2L, position + bytes));
+            }
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            ensure(1);
+            buffer.put((int) position++, (byte) b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            ensure(len);
+            buffer.position((int) position);
+            buffer.put(b, off, len);
+            position += len;
+        }
+
+        long position() {
+            return position;
+        }
+
+        void force() {
+            buffer.force();
+        }
+
+        @Override
+        public void close() throws IOException {
+            buffer.force();
+            channel.close();
+        }
+    }
+}
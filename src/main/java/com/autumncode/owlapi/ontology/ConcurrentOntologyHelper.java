@@ -0,0 +1,214 @@
+package com.autumncode.owlapi.ontology;
+
+import org.semanticweb.owlapi.apibinding.OWLManager;
+import org.semanticweb.owlapi.io.OWLOntologyDocumentSource;
+import org.semanticweb.owlapi.io.OWLOntologyDocumentTarget;
+import org.semanticweb.owlapi.model.*;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * An OntologyHelper that can be shared between threads.
+ *
+ * <p>Every ontology gets its own {@link WriteLane}: changes to different ontologies are applied
+ * in parallel (through the OWLAPI's concurrent manager), while changes to the same ontology go
+ * through that ontology's single-writer queue. Operations that change the manager itself
+ * (creating or loading ontologies) take an exclusive manager lock; applying changes only needs
+ * it shared.</p>
+ *
+ * <p>Readers that need a consistent view while writers are busy should use
+ * {@link #snapshot(OWLOntology)} rather than reading the ontology directly; a snapshot is
+ * immutable and taking one never blocks a writer.</p>
+ *
+ * <p>Reasoner sessions and instance indexes register listeners with the manager, which the
+ * OWLAPI doesn't allow to race with change broadcasts; create them through
+ * {@link #exclusively(Callable)}.</p>
+ */
+public class ConcurrentOntologyHelper extends OntologyHelper {
+    private final ReadWriteLock managerLock = new ReentrantReadWriteLock();
+    private final ConcurrentMap<OWLOntology, WriteLane> lanes = new ConcurrentHashMap<>();
+    // set while the thread runs an exclusively() action
+    private final ThreadLocal<Boolean> exclusive = ThreadLocal.withInitial(() -> false);
+
+    public ConcurrentOntologyHelper() {
+        this(new EntityCache());
+    }
+
+    /**
+     * @param cache the IRI and entity cache to use; helpers can share one
+     */
+    public ConcurrentOntologyHelper(EntityCache cache) {
+        // lanes for different ontologies apply changes through the manager at the same time
+        super(cache, OWLManager.createConcurrentOWLOntologyManager());
+        // a removed ontology's lane would otherwise keep it, and its last snapshot, reachable
+        removalListeners.add(lanes::remove);
+    }
+
+    private WriteLane lane(OWLOntology o) {
+        return lanes.computeIfAbsent(o, ontology -> new WriteLane(ontology, this::applyToManager));
+    }
+
+    private void applyToManager(OWLOntology o, List<OWLOntologyChange> changes, boolean notifyListeners) {
+        managerLock.readLock().lock();
+        try {
+            super.commit(o, changes, notifyListeners);
+        } finally {
+            managerLock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public OWLOntology createOntology(IRI iri) throws OWLOntologyCreationException {
+        managerLock.writeLock().lock();
+        try {
+            return super.createOntology(iri);
+        } finally {
+            managerLock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public OWLOntology readOntology(OWLOntologyDocumentSource source) throws OWLOntologyCreationException {
+        managerLock.writeLock().lock();
+        try {
+            return super.readOntology(source);
+        } finally {
+            managerLock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public OWLOntology readSnapshot(InputStream in) throws OWLOntologyCreationException {
+        managerLock.writeLock().lock();
+        try {
+            return super.readSnapshot(in);
+        } finally {
+            managerLock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void writeOntology(OWLOntology o, OWLOntologyDocumentTarget documentTarget)
+            throws OWLOntologyStorageException {
+        writeExclusively(o, () -> {
+            super.writeOntology(o, documentTarget);
+            return null;
+        });
+    }
+
+    @Override
+    public void writeOntology(OWLOntology o, OWLDocumentFormat format, OWLOntologyDocumentTarget documentTarget)
+            throws OWLOntologyStorageException {
+        writeExclusively(o, () -> {
+            super.writeOntology(o, format, documentTarget);
+            return null;
+        });
+    }
+
+    @Override
+    public void writeSnapshot(OWLOntology o, OutputStream out) throws OWLOntologyStorageException {
+        writeExclusively(o, () -> {
+            super.writeSnapshot(o, out);
+            return null;
+        });
+    }
+
+    /**
+     * Serializes an ontology with its writers held off, so the document is a consistent picture.
+     */
+    private void writeExclusively(OWLOntology o, Callable<Void> write) throws OWLOntologyStorageException {
+        try {
+            lane(o).exclusively(write);
+        } catch (OWLOntologyStorageException | RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new OWLOntologyStorageException(e);
+        }
+    }
+
+    /**
+     * Applies changes, which may be for several ontologies. Returns once all of them have been
+     * applied, by this thread or by whichever thread was draining an ontology's queue.
+     *
+     * @param changes the changes to apply
+     */
+    @Override
+    public void applyChange(OWLAxiomChange... changes) {
+        checkNotExclusive();
+        Map<OWLOntology, List<OWLOntologyChange>> byOntology = new LinkedHashMap<>();
+        for (OWLAxiomChange change : changes) {
+            byOntology.computeIfAbsent(change.getOntology(), o -> new ArrayList<>()).add(change);
+        }
+        List<CompletableFuture<Void>> pending = new ArrayList<>(byOntology.size());
+        for (Map.Entry<OWLOntology, List<OWLOntologyChange>> entry : byOntology.entrySet()) {
+            pending.add(lane(entry.getKey()).submit(entry.getValue(), true));
+        }
+        pending.forEach(ConcurrentOntologyHelper::await);
+    }
+
+    @Override
+    void commit(OWLOntology o, List<? extends OWLOntologyChange> changes, boolean notifyListeners) {
+        checkNotExclusive();
+        await(lane(o).submit(changes, notifyListeners));
+    }
+
+    /**
+     * A lane's writer may be another thread, waiting for the manager lock that exclusively()
+     * holds; waiting for it from inside the action would never end.
+     */
+    private void checkNotExclusive() {
+        if (exclusive.get()) {
+            throw new IllegalStateException("changes can't be applied from inside exclusively()");
+        }
+    }
+
+    private static void await(CompletableFuture<Void> future) {
+        try {
+            future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Returns an immutable view of an ontology that includes every change applied before the
+     * call. The first snapshot of an ontology copies it (holding off its writers while it does);
+     * later ones are built from the previous snapshot and the changes since.
+     *
+     * @param o the ontology
+     * @return the snapshot
+     */
+    public OntologySnapshot snapshot(OWLOntology o) {
+        return lane(o).snapshot();
+    }
+
+    /**
+     * Runs something with the manager to itself: no changes are applied, and no ontologies
+     * created or loaded, while it runs. The action can't apply changes itself (that includes
+     * bulk loads and reading snapshots); they're rejected with an IllegalStateException.
+     *
+     * @param action what to run, e.g. <code>() -&gt; oh.getReasonerPool().session(o)</code>
+     * @param <T>    the type of the result
+     * @return the action's result
+     * @throws Exception whatever the action throws
+     */
+    public <T> T exclusively(Callable<T> action) throws Exception {
+        boolean nested = exclusive.get();
+        managerLock.writeLock().lock();
+        exclusive.set(true);
+        try {
+            return action.call();
+        } finally {
+            exclusive.set(nested);
+            managerLock.writeLock().unlock();
+        }
+    }
+}
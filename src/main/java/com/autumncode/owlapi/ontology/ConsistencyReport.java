@@ -0,0 +1,98 @@
+package com.autumncode.owlapi.ontology;
+
+import org.semanticweb.owlapi.model.OWLIndividual;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The result of a partitioned consistency check: how the ABox was split, and which parts of it
+ * (if any) are inconsistent with the TBox.
+ *
+ * @see OntologyHelper#checkConsistency(org.semanticweb.owlapi.model.OWLOntology)
+ */
+public class ConsistencyReport {
+    private final int components;
+    private final int partitions;
+    private final List<Inconsistency> inconsistencies;
+    private final long elapsedNanos;
+
+    ConsistencyReport(int components, int partitions, List<Inconsistency> inconsistencies, long elapsedNanos) {
+        this.components = components;
+        this.partitions = partitions;
+        this.inconsistencies = Collections.unmodifiableList(inconsistencies);
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    public boolean isConsistent() {
+        return inconsistencies.isEmpty();
+    }
+
+    /**
+     * @return the number of connected components found in the assertion graph
+     */
+    public int getComponents() {
+        return components;
+    }
+
+    /**
+     * @return the number of ontologies the components were packed into and reasoned over
+     */
+    public int getPartitions() {
+        return partitions;
+    }
+
+    public List<Inconsistency> getInconsistencies() {
+        return inconsistencies;
+    }
+
+    public long getElapsed(TimeUnit unit) {
+        return unit.convert(elapsedNanos, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s: %d components in %d partitions, %d inconsistent, %d ms",
+                isConsistent() ? "consistent" : "inconsistent", components, partitions,
+                inconsistencies.size(), getElapsed(TimeUnit.MILLISECONDS));
+    }
+
+    /**
+     * One connected component that is inconsistent with the TBox, or the TBox itself.
+     */
+    public static class Inconsistency {
+        private final Set<OWLIndividual> individuals;
+        private final int axioms;
+
+        Inconsistency(Set<OWLIndividual> individuals, int axioms) {
+            this.individuals = Collections.unmodifiableSet(individuals);
+            this.axioms = axioms;
+        }
+
+        /**
+         * @return the individuals in the inconsistent component; empty if the TBox is
+         * inconsistent on its own
+         */
+        public Set<OWLIndividual> getIndividuals() {
+            return individuals;
+        }
+
+        /**
+         * @return the number of assertions in the component
+         */
+        public int getAxiomCount() {
+            return axioms;
+        }
+
+        public boolean isTBox() {
+            return individuals.isEmpty();
+        }
+
+        @Override
+        public String toString() {
+            return isTBox() ? "inconsistent TBox" : individuals.size() + " individuals, " + axioms + " assertions";
+        }
+    }
+}
@@ -0,0 +1,475 @@
+package com.autumncode.owlapi.ontology;
+
+import org.semanticweb.owlapi.model.*;
+import org.semanticweb.owlapi.vocab.OWL2Datatype;
+
+import java.util.*;
+import java.util.function.IntPredicate;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * Holds data property assertions as columns of primitives instead of axiom objects.
+ *
+ * <p>{@link OntologyHelper#addDataToIndividual} builds a literal and an assertion axiom for every
+ * value, which costs around a hundred bytes for a four-byte int. Here individuals, properties
+ * and strings are numbered once, and each (property, value type) pair gets a column: an array
+ * of individual ids next to an int, long or double array, a bit set for booleans, or an array
+ * of string dictionary ids. That's eight to twelve bytes a value, and scans that run over
+ * plain arrays.</p>
+ *
+ * <pre>
+ * DataAssertionStore store = oh.dataAssertionStore();
+ * store.add(t800, serialNumber, 800).add(t800, active, true);
+ * store.individualsInRange(serialNumber, 100, 999).mapToObj(store::getIndividual)...
+ * store.materialize(o);   // before saving or reasoning
+ * </pre>
+ *
+ * <p>Columns keep values in the order they were added; an individual can have several values
+ * for a property, and the getters return the first. {@link #materialize(OWLOntology)} folds
+ * duplicates, as an ontology would. A store isn't safe for concurrent use.</p>
+ */
+public class DataAssertionStore {
+    private final OntologyHelper helper;
+    private final Map<IRI, Integer> individualIds = new HashMap<>();
+    private final List<OWLNamedIndividual> individuals = new ArrayList<>();
+    private final Map<IRI, Integer> propertyIds = new HashMap<>();
+    private final List<OWLDataProperty> properties = new ArrayList<>();
+    private final Map<String, Integer> stringIds = new HashMap<>();
+    private final List<String> strings = new ArrayList<>();
+    private final List<Map<Class<?>, Column>> columns = new ArrayList<>();
+
+    DataAssertionStore(OntologyHelper helper) {
+        this.helper = helper;
+    }
+
+    /**
+     * @param individual a named individual
+     * @return its id in this store, assigned on first use
+     */
+    public int individualId(OWLIndividual individual) {
+        if (individual.isAnonymous()) {
+            throw new IllegalArgumentException("only named individuals can be stored: " + individual);
+        }
+        OWLNamedIndividual named = individual.asOWLNamedIndividual();
+        Integer id = individualIds.get(named.getIRI());
+        if (id == null) {
+            id = individuals.size();
+            individualIds.put(named.getIRI(), id);
+            individuals.add(named);
+        }
+        return id;
+    }
+
+    public OWLNamedIndividual getIndividual(int id) {
+        return individuals.get(id);
+    }
+
+    private int stringId(String value) {
+        Integer id = stringIds.get(value);
+        if (id == null) {
+            id = strings.size();
+            stringIds.put(value, id);
+            strings.add(value);
+        }
+        return id;
+    }
+
+    /**
+     * @return the property's column of the given type, created if it doesn't exist yet
+     */
+    @SuppressWarnings("unchecked")
+    private <C extends Column> C column(OWLDataProperty property, Class<C> type) {
+        Integer id = propertyIds.get(property.getIRI());
+        if (id == null) {
+            id = properties.size();
+            propertyIds.put(property.getIRI(), id);
+            properties.add(property);
+            columns.add(new LinkedHashMap<>());
+        }
+        return (C) columns.get(id).computeIfAbsent(type, t -> {
+            if (t == IntColumn.class) {
+                return new IntColumn();
+            }
+            if (t == LongColumn.class) {
+                return new LongColumn();
+            }
+            if (t == DoubleColumn.class) {
+                return new DoubleColumn();
+            }
+            if (t == BooleanColumn.class) {
+                return new BooleanColumn();
+            }
+            return new StringColumn();
+        });
+    }
+
+    /**
+     * @return the property's column of the given type, or null if there isn't one
+     */
+    @SuppressWarnings("unchecked")
+    private <C extends Column> C existingColumn(OWLDataProperty property, Class<C> type) {
+        Integer id = propertyIds.get(property.getIRI());
+        return id == null ? null : (C) columns.get(id).get(type);
+    }
+
+    public DataAssertionStore add(OWLIndividual individual, OWLDataProperty property, int value) {
+        column(property, IntColumn.class).append(individualId(individual), value);
+        return this;
+    }
+
+    public DataAssertionStore add(OWLIndividual individual, OWLDataProperty property, long value) {
+        column(property, LongColumn.class).append(individualId(individual), value);
+        return this;
+    }
+
+    public DataAssertionStore add(OWLIndividual individual, OWLDataProperty property, double value) {
+        column(property, DoubleColumn.class).append(individualId(individual), value);
+        return this;
+    }
+
+    public DataAssertionStore add(OWLIndividual individual, OWLDataProperty property, boolean value) {
+        column(property, BooleanColumn.class).append(individualId(individual), value);
+        return this;
+    }
+
+    public DataAssertionStore add(OWLIndividual individual, OWLDataProperty property, String value) {
+        column(property, StringColumn.class).append(individualId(individual), stringId(value));
+        return this;
+    }
+
+    /**
+     * Appends a run of int values for one property.
+     *
+     * @param property      the property
+     * @param individualIds ids from {@link #individualId(OWLIndividual)}
+     * @param values        the values, one per id
+     * @param length        how many leading entries of the arrays to append
+     * @return this store
+     */
+    public DataAssertionStore appendInts(OWLDataProperty property, int[] individualIds, int[] values, int length) {
+        checkRun(individualIds, values.length, length);
+        IntColumn column = column(property, IntColumn.class);
+        column.appendIds(individualIds, length);
+        System.arraycopy(values, 0, column.values, column.size - length, length);
+        return this;
+    }
+
+    public DataAssertionStore appendLongs(OWLDataProperty property, int[] individualIds, long[] values, int length) {
+        checkRun(individualIds, values.length, length);
+        LongColumn column = column(property, LongColumn.class);
+        column.appendIds(individualIds, length);
+        System.arraycopy(values, 0, column.values, column.size - length, length);
+        return this;
+    }
+
+    public DataAssertionStore appendDoubles(OWLDataProperty property, int[] individualIds, double[] values, int length) {
+        checkRun(individualIds, values.length, length);
+        DoubleColumn column = column(property, DoubleColumn.class);
+        column.appendIds(individualIds, length);
+        System.arraycopy(values, 0, column.values, column.size - length, length);
+        return this;
+    }
+
+    public DataAssertionStore appendBooleans(OWLDataProperty property, int[] individualIds, boolean[] values, int length) {
+        checkRun(individualIds, values.length, length);
+        BooleanColumn column = column(property, BooleanColumn.class);
+        int start = column.size;
+        column.appendIds(individualIds, length);
+        for (int i = 0; i < length; i++) {
+            column.values.set(start + i, values[i]);
+        }
+        return this;
+    }
+
+    /**
+     * Checks a run before anything is appended, so a bad run leaves the column as it was.
+     */
+    private void checkRun(int[] ids, int values, int length) {
+        if (length < 0 || length > ids.length || length > values) {
+            throw new IllegalArgumentException("can't append " + length + " entries from " + ids.length
+                    + " ids and " + values + " values");
+        }
+        for (int i = 0; i < length; i++) {
+            if (ids[i] < 0 || ids[i] >= individuals.size()) {
+                throw new IllegalArgumentException("unknown individual id " + ids[i]);
+            }
+        }
+    }
+
+    /**
+     * @return the ids of individuals with an int value of the property in [min, max]
+     */
+    public IntStream individualsInRange(OWLDataProperty property, int min, int max) {
+        IntColumn column = existingColumn(property, IntColumn.class);
+        return column == null ? IntStream.empty() : column.select(i -> column.values[i] >= min && column.values[i] <= max);
+    }
+
+    /**
+     * @return the ids of individuals with a long value of the property in [min, max]
+     */
+    public IntStream individualsInRange(OWLDataProperty property, long min, long max) {
+        LongColumn column = existingColumn(property, LongColumn.class);
+        return column == null ? IntStream.empty() : column.select(i -> column.values[i] >= min && column.values[i] <= max);
+    }
+
+    /**
+     * @return the ids of individuals with a double value of the property in [min, max]
+     */
+    public IntStream individualsInRange(OWLDataProperty property, double min, double max) {
+        DoubleColumn column = existingColumn(property, DoubleColumn.class);
+        return column == null ? IntStream.empty() : column.select(i -> column.values[i] >= min && column.values[i] <= max);
+    }
+
+    public IntStream individualsWith(OWLDataProperty property, boolean value) {
+        BooleanColumn column = existingColumn(property, BooleanColumn.class);
+        return column == null ? IntStream.empty() : column.select(i -> column.values.get(i) == value);
+    }
+
+    public IntStream individualsWith(OWLDataProperty property, String value) {
+        StringColumn column = existingColumn(property, StringColumn.class);
+        Integer id = stringIds.get(value);
+        if (column == null || id == null) {
+            return IntStream.empty();
+        }
+        int wanted = id;
+        return column.select(i -> column.values[i] == wanted);
+    }
+
+    public OptionalInt getInt(OWLIndividual individual, OWLDataProperty property) {
+        IntColumn column = existingColumn(property, IntColumn.class);
+        int row = row(column, individual);
+        return row < 0 ? OptionalInt.empty() : OptionalInt.of(column.values[row]);
+    }
+
+    public OptionalLong getLong(OWLIndividual individual, OWLDataProperty property) {
+        LongColumn column = existingColumn(property, LongColumn.class);
+        int row = row(column, individual);
+        return row < 0 ? OptionalLong.empty() : OptionalLong.of(column.values[row]);
+    }
+
+    public OptionalDouble getDouble(OWLIndividual individual, OWLDataProperty property) {
+        DoubleColumn column = existingColumn(property, DoubleColumn.class);
+        int row = row(column, individual);
+        return row < 0 ? OptionalDouble.empty() : OptionalDouble.of(column.values[row]);
+    }
+
+    public Optional<Boolean> getBoolean(OWLIndividual individual, OWLDataProperty property) {
+        BooleanColumn column = existingColumn(property, BooleanColumn.class);
+        int row = row(column, individual);
+        return row < 0 ? Optional.empty() : Optional.of(column.values.get(row));
+    }
+
+    public Optional<String> getString(OWLIndividual individual, OWLDataProperty property) {
+        StringColumn column = existingColumn(property, StringColumn.class);
+        int row = row(column, individual);
+        return row < 0 ? Optional.empty() : Optional.of(strings.get(column.values[row]));
+    }
+
+    private int row(Column column, OWLIndividual individual) {
+        if (column == null || individual.isAnonymous()) {
+            return -1;
+        }
+        Integer id = individualIds.get(individual.asOWLNamedIndividual().getIRI());
+        return id == null ? -1 : column.firstRow(id);
+    }
+
+    /**
+     * @return the number of values stored
+     */
+    public long size() {
+        long size = 0;
+        for (Map<Class<?>, Column> byType : columns) {
+            for (Column column : byType.values()) {
+                size += column.size;
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Creates the assertion axioms for every stored value, lazily: nothing is built until the
+     * stream is consumed, and each axiom can be dropped as soon as it has been used. Literals
+     * are typed the way addDataToIndividual types them, with longs as xsd:long and doubles as
+     * xsd:double.
+     *
+     * @return the axioms, property by property and in the order the values were added
+     */
+    public Stream<OWLDataPropertyAssertionAxiom> axioms() {
+        return IntStream.range(0, properties.size()).boxed().flatMap(propertyId -> {
+            OWLDataProperty property = properties.get(propertyId);
+            return columns.get(propertyId).values().stream().flatMap(column ->
+                    IntStream.range(0, column.size).mapToObj(row -> helper.df.getOWLDataPropertyAssertionAxiom(
+                            property, individuals.get(column.individuals[row]), column.literal(this, row))));
+        });
+    }
+
+    /**
+     * Adds every stored value to an ontology as an ordinary assertion axiom, through a
+     * {@link BulkLoader}, so it can be saved or reasoned over.
+     *
+     * @param o the ontology
+     * @return what the bulk load did
+     */
+    public BulkLoadStatistics materialize(OWLOntology o) {
+        return helper.bulkLoad(o, axioms());
+    }
+
+    /**
+     * The individual ids shared by every column type. The first row for each individual is
+     * found through a sorted index that's rebuilt after appends, on the next lookup.
+     */
+    private abstract static class Column {
+        int[] individuals = new int[16];
+        int size;
+        private int[] index;
+
+        final void appendIds(int[] ids, int length) {
+            ensureCapacity(size + length);
+            System.arraycopy(ids, 0, individuals, size, length);
+            size += length;
+            index = null;
+        }
+
+        final int appendId(int id) {
+            ensureCapacity(size + 1);
+            individuals[size] = id;
+            index = null;
+            return size++;
+        }
+
+        private void ensureCapacity(int capacity) {
+            if (capacity > individuals.length) {
+                int grown = Math.max(capacity, individuals.length + (individuals.length >> 1));
+                individuals = Arrays.copyOf(individuals, grown);
+                grow(grown);
+            }
+        }
+
+        abstract void grow(int capacity);
+
+        abstract OWLLiteral literal(DataAssertionStore store, int row);
+
+        final IntStream select(IntPredicate row) {
+            return IntStream.range(0, size).filter(row).map(i -> individuals[i]);
+        }
+
+        /**
+         * @return the first row holding a value for the individual, or -1
+         */
+        final int firstRow(int individual) {
+            if (index == null) {
+                // rows sorted by (individual, row), packed into longs so one primitive sort does it
+                long[] keyed = new long[size];
+                for (int row = 0; row < size; row++) {
+                    keyed[row] = ((long) individuals[row] << 32) | row;
+                }
+                Arrays.sort(keyed);
+                index = new int[size];
+                for (int i = 0; i < size; i++) {
+                    index[i] = (int) keyed[i];
+                }
+            }
+            int low = 0;
+            int high = size;
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (individuals[index[middle]] < individual) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            return low < size && individuals[index[low]] == individual ? index[low] : -1;
+        }
+    }
+
+    private static final class IntColumn extends Column {
+        int[] values = new int[16];
+
+        void append(int individual, int value) {
+            values[appendId(individual)] = value;
+        }
+
+        @Override
+        void grow(int capacity) {
+            values = Arrays.copyOf(values, capacity);
+        }
+
+        @Override
+        OWLLiteral literal(DataAssertionStore store, int row) {
+            return store.helper.df.getOWLLiteral(values[row]);
+        }
+    }
+
+    private static final class LongColumn extends Column {
+        long[] values = new long[16];
+
+        void append(int individual, long value) {
+            values[appendId(individual)] = value;
+        }
+
+        @Override
+        void grow(int capacity) {
+            values = Arrays.copyOf(values, capacity);
+        }
+
+        @Override
+        OWLLiteral literal(DataAssertionStore store, int row) {
+            return store.helper.df.getOWLLiteral(Long.toString(values[row]), OWL2Datatype.XSD_LONG);
+        }
+    }
+
+    private static final class DoubleColumn extends Column {
+        double[] values = new double[16];
+
+        void append(int individual, double value) {
+            values[appendId(individual)] = value;
+        }
+
+        @Override
+        void grow(int capacity) {
+            values = Arrays.copyOf(values, capacity);
+        }
+
+        @Override
+        OWLLiteral literal(DataAssertionStore store, int row) {
+            return store.helper.df.getOWLLiteral(values[row]);
+        }
+    }
+
+    private static final class BooleanColumn extends Column {
+        final BitSet values = new BitSet();
+
+        void append(int individual, boolean value) {
+            values.set(appendId(individual), value);
+        }
+
+        @Override
+        void grow(int capacity) {
+        }
+
+        @Override
+        OWLLiteral literal(DataAssertionStore store, int row) {
+            return store.helper.df.getOWLLiteral(values.get(row));
+        }
+    }
+
+    private static final class StringColumn extends Column {
+        int[] values = new int[16];
+
+        void append(int individual, int stringId) {
+            values[appendId(individual)] = stringId;
+        }
+
+        @Override
+        void grow(int capacity) {
+            values = Arrays.copyOf(values, capacity);
+        }
+
+        @Override
+        OWLLiteral literal(DataAssertionStore store, int row) {
+            return store.helper.df.getOWLLiteral(store.strings.get(values[row]), OWL2Datatype.XSD_STRING);
+        }
+    }
+}
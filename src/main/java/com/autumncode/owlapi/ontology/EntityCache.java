@@ -0,0 +1,267 @@
+package com.autumncode.owlapi.ontology;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.CacheStats;
+import com.google.common.cache.LoadingCache;
+import org.semanticweb.owlapi.apibinding.OWLManager;
+import org.semanticweb.owlapi.model.*;
+
+/**
+ * Interns IRIs and entities, so that the same namespace-prefixed string always turns into the
+ * same IRI instance, and the same IRI into the same OWLClass (or individual, or property).
+ *
+ * <p>IRIs are keyed by namespace and fragment rather than the full string. Namespaces are
+ * interned in a small table of their own, so a few hundred thousand names in a handful of
+ * namespaces cost one copy of each namespace, and a key holds just the fragment. A lookup finds
+ * the namespace and compares the fragment in place in the requested string, so a hit allocates
+ * one small probe object and copies no characters; the fragment is only copied out on a miss.
+ * Every cache is bounded by weight (roughly, characters of fragment held) and evicts
+ * least-recently-used entries once it's full; evicted names are just created again on the next
+ * request, so a small cache costs time, never correctness.</p>
+ *
+ * <p>All of the caches are safe for concurrent use. One cache can be shared between helpers.</p>
+ */
+public class EntityCache {
+    public static final long DEFAULT_MAXIMUM_WEIGHT = 16L * 1024 * 1024;
+    /**
+     * Namespaces past this many aren't interned (so that IRIs with an id in the path, rather
+     * than after it, can't grow the table without bound); their keys carry their own copy.
+     */
+    static final int MAX_NAMESPACES = 4096;
+
+    private final Namespaces namespaces = new Namespaces();
+    private final Cache<PrefixedName, IRI> iris;
+    private final LoadingCache<IRI, OWLClass> classes;
+    private final LoadingCache<IRI, OWLNamedIndividual> individuals;
+    private final LoadingCache<IRI, OWLObjectProperty> objectProperties;
+    private final LoadingCache<IRI, OWLDataProperty> dataProperties;
+
+    public EntityCache() {
+        this(DEFAULT_MAXIMUM_WEIGHT, OWLManager.getOWLDataFactory());
+    }
+
+    /**
+     * @param maximumWeight the budget for each cache, in (approximate) characters of IRI held
+     * @param df            the factory entities are created with on a miss
+     */
+    public EntityCache(long maximumWeight, OWLDataFactory df) {
+        iris = CacheBuilder.newBuilder()
+                .maximumWeight(maximumWeight)
+                .weigher((PrefixedName key, IRI value) -> key.weight())
+                .recordStats()
+                .build();
+        classes = entityCache(maximumWeight, CacheLoader.from((IRI iri) -> df.getOWLClass(iri)));
+        individuals = entityCache(maximumWeight, CacheLoader.from((IRI iri) -> df.getOWLNamedIndividual(iri)));
+        objectProperties = entityCache(maximumWeight, CacheLoader.from((IRI iri) -> df.getOWLObjectProperty(iri)));
+        dataProperties = entityCache(maximumWeight, CacheLoader.from((IRI iri) -> df.getOWLDataProperty(iri)));
+    }
+
+    private static <E extends OWLEntity> LoadingCache<IRI, E> entityCache(long maximumWeight, CacheLoader<IRI, E> loader) {
+        return CacheBuilder.newBuilder()
+                .maximumWeight(maximumWeight)
+                .weigher((IRI key, E value) -> key.length() + PrefixedName.OVERHEAD)
+                .recordStats()
+                .build(loader);
+    }
+
+    public IRI iri(String iri) {
+        int split = Math.max(iri.lastIndexOf('#'), iri.lastIndexOf('/')) + 1;
+        PrefixedName probe = new PrefixedName(namespaces.intern(iri, split), iri, split);
+        IRI cached = iris.getIfPresent(probe);
+        if (cached != null) {
+            return cached;
+        }
+        IRI created = IRI.create(iri);
+        IRI raced = iris.asMap().putIfAbsent(probe.detach(), created);
+        return raced == null ? created : raced;
+    }
+
+    public OWLClass getOWLClass(IRI iri) {
+        return classes.getUnchecked(iri);
+    }
+
+    public OWLNamedIndividual getOWLNamedIndividual(IRI iri) {
+        return individuals.getUnchecked(iri);
+    }
+
+    public OWLObjectProperty getOWLObjectProperty(IRI iri) {
+        return objectProperties.getUnchecked(iri);
+    }
+
+    public OWLDataProperty getOWLDataProperty(IRI iri) {
+        return dataProperties.getUnchecked(iri);
+    }
+
+    public CacheStats getIRIStats() {
+        return iris.stats();
+    }
+
+    /**
+     * @return the hit, miss and eviction counts of the entity caches, added together
+     */
+    public CacheStats getEntityStats() {
+        return classes.stats()
+                .plus(individuals.stats())
+                .plus(objectProperties.stats())
+                .plus(dataProperties.stats());
+    }
+
+    public long size() {
+        return iris.size() + classes.size() + individuals.size() + objectProperties.size() + dataProperties.size();
+    }
+
+    public void invalidateAll() {
+        iris.invalidateAll();
+        classes.invalidateAll();
+        individuals.invalidateAll();
+        objectProperties.invalidateAll();
+        dataProperties.invalidateAll();
+    }
+
+    /**
+     * A namespace string and its hash, shared by every key in that namespace.
+     */
+    static final class Namespace {
+        final String value;
+        final int hash;
+
+        Namespace(String value, int hash) {
+            this.value = value;
+            this.hash = hash;
+        }
+    }
+
+    /**
+     * An open-addressed table of interned namespaces, looked up by a prefix of a string without
+     * copying it. Readers go through the published array without locking; adding a namespace
+     * copies the array, which is cheap because there are few of them.
+     */
+    static final class Namespaces {
+        private volatile Namespace[] table = new Namespace[64];
+        private int count;
+
+        Namespace intern(String iri, int end) {
+            int hash = hash(iri, 0, end);
+            Namespace found = find(table, iri, end, hash);
+            if (found != null) {
+                return found;
+            }
+            synchronized (this) {
+                found = find(table, iri, end, hash);
+                if (found != null) {
+                    return found;
+                }
+                Namespace namespace = new Namespace(iri.substring(0, end), hash);
+                if (count >= MAX_NAMESPACES) {
+                    return namespace;
+                }
+                Namespace[] current = table;
+                Namespace[] grown = new Namespace[(count + 1) * 2 > current.length ? current.length * 2 : current.length];
+                for (Namespace n : current) {
+                    if (n != null) {
+                        insert(grown, n);
+                    }
+                }
+                insert(grown, namespace);
+                count++;
+                table = grown;
+                return namespace;
+            }
+        }
+
+        private static Namespace find(Namespace[] table, String iri, int end, int hash) {
+            int mask = table.length - 1;
+            for (int i = hash & mask; ; i = (i + 1) & mask) {
+                Namespace n = table[i];
+                if (n == null) {
+                    return null;
+                }
+                if (n.hash == hash && n.value.length() == end && iri.startsWith(n.value)) {
+                    return n;
+                }
+            }
+        }
+
+        private static void insert(Namespace[] table, Namespace namespace) {
+            int mask = table.length - 1;
+            int i = namespace.hash & mask;
+            while (table[i] != null) {
+                i = (i + 1) & mask;
+            }
+            table[i] = namespace;
+        }
+    }
+
+    /**
+     * The same hash String.hashCode() gives the substring, without making the substring.
+     */
+    static int hash(String s, int from, int to) {
+        int h = 0;
+        for (int i = from; i < to; i++) {
+            h = 31 * h + s.charAt(i);
+        }
+        return h;
+    }
+
+    /**
+     * A cache key made of an interned namespace and the fragment that follows it. The fragment is
+     * the part of <code>text</code> from <code>offset</code> on: a probe points into the
+     * requested string, and a stored key holds a copy of just the fragment.
+     */
+    static final class PrefixedName {
+        /**
+         * A rough allowance for the key and entry objects, in characters.
+         */
+        static final int OVERHEAD = 16;
+
+        final Namespace namespace;
+        final String text;
+        final int offset;
+        private final int hash;
+
+        PrefixedName(Namespace namespace, String text, int offset) {
+            this.namespace = namespace;
+            this.text = text;
+            this.offset = offset;
+            this.hash = 31 * namespace.hash + hash(text, offset, text.length());
+        }
+
+        /**
+         * @return a key that holds only the fragment, not the whole string it was found in
+         */
+        PrefixedName detach() {
+            return offset == 0 ? this : new PrefixedName(namespace, text.substring(offset), 0);
+        }
+
+        int fragmentLength() {
+            return text.length() - offset;
+        }
+
+        int weight() {
+            return fragmentLength() + OVERHEAD;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof PrefixedName)) {
+                return false;
+            }
+            PrefixedName other = (PrefixedName) o;
+            // interned namespaces compare by identity; only ones past the table's cap get to equals
+            return hash == other.hash
+                    && (namespace == other.namespace || namespace.value.equals(other.namespace.value))
+                    && fragmentLength() == other.fragmentLength()
+                    && text.regionMatches(offset, other.text, other.offset, fragmentLength());
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
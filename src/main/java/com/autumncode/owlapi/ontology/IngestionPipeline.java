@@ -0,0 +1,299 @@
+package com.autumncode.owlapi.ontology;
+
+import org.semanticweb.owlapi.apibinding.OWLManager;
+import org.semanticweb.owlapi.io.FileDocumentSource;
+import org.semanticweb.owlapi.io.OWLOntologyDocumentSource;
+import org.semanticweb.owlapi.model.*;
+import org.semanticweb.owlapi.util.OWLObjectDuplicator;
+
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Loads many documents into one ontology: each document is parsed and canonicalized on its own
+ * virtual thread, and a single committer applies the results to the target in batches.
+ *
+ * <pre>
+ * try (IngestionPipeline pipeline = oh.ingestionPipeline(o)) {
+ *     for (Path file : files) {
+ *         pipeline.submit(file);
+ *     }
+ * }
+ * </pre>
+ *
+ * <p>The stages are:</p>
+ * <ol>
+ * <li><b>parse</b> - the document is loaded into a scratch manager of its own, so parses don't
+ * contend with each other or with the target's manager;</li>
+ * <li><b>canonicalize</b> - its axioms are copied with every entity IRI replaced by the
+ * helper's {@link EntityCache} instance, so a name mentioned in a thousand documents is held
+ * once;</li>
+ * <li><b>commit</b> - the axioms are handed to a {@link BulkLoader} on the target, a batch of
+ * whole documents at a time: documents are grouped until the next one would take the batch past
+ * <code>batchSize</code> axioms, and each batch is flushed before the next starts. A document
+ * counts as committed once its batch is flushed, and if a flush fails, the batch is dropped and
+ * every document in it is recorded as failed.</li>
+ * </ol>
+ *
+ * <p>Memory is bounded: {@link #submit(OWLOntologyDocumentSource)} blocks while
+ * <code>parallelism</code> documents are being parsed, and parsed documents wait in a queue of
+ * <code>queueCapacity</code> for the committer, so a slow commit holds back the parsers
+ * instead of piling up parsed documents.</p>
+ *
+ * <p>A document that fails at any stage is recorded in the statistics and skipped; the rest
+ * carry on. Nothing else should write to the target while the pipeline runs, unless the helper
+ * is a {@link ConcurrentOntologyHelper}.</p>
+ */
+public class IngestionPipeline implements AutoCloseable {
+    public static final int DEFAULT_QUEUE_CAPACITY = 64;
+
+    public enum Stage {
+        PARSE, CANONICALIZE, COMMIT
+    }
+
+    private static final Document END = new Document(null, Collections.emptyList());
+
+    private final OntologyHelper helper;
+    private final Semaphore parsing;
+    private final BlockingQueue<Document> parsed;
+    private final ExecutorService workers = Executors.newVirtualThreadPerTaskExecutor();
+    private final Thread committer;
+    private final BulkLoader loader;
+    private final int batchSize;
+    private final List<Document> batch = new ArrayList<>();
+    private int batchAxioms;
+    private final Map<Stage, StageMetrics> metrics = new EnumMap<>(Stage.class);
+    private final Queue<IngestionStatistics.Failure> failures = new ConcurrentLinkedQueue<>();
+    private final LongAdder submitted = new LongAdder();
+    private final LongAdder committed = new LongAdder();
+    private final LongAdder axioms = new LongAdder();
+    private final long start = System.nanoTime();
+    private volatile long finishedAt;
+
+    IngestionPipeline(OntologyHelper helper, OWLOntology target, int parallelism, int queueCapacity, int batchSize) {
+        this.helper = helper;
+        this.parsing = new Semaphore(parallelism);
+        this.parsed = new ArrayBlockingQueue<>(queueCapacity);
+        this.loader = helper.bulkLoader(target, batchSize, false);
+        this.batchSize = batchSize;
+        for (Stage stage : Stage.values()) {
+            metrics.put(stage, new StageMetrics());
+        }
+        committer = Thread.ofPlatform().name("ingest-commit").daemon().start(this::commitAll);
+    }
+
+    /**
+     * Queues a document, blocking while the pipeline is full.
+     *
+     * @param source the document
+     * @return this pipeline
+     * @throws InterruptedException  if interrupted while waiting for room
+     * @throws IllegalStateException if the pipeline has been finished
+     */
+    public IngestionPipeline submit(OWLOntologyDocumentSource source) throws InterruptedException {
+        parsing.acquire();
+        try {
+            workers.execute(() -> process(source));
+        } catch (RejectedExecutionException e) {
+            parsing.release();
+            throw new IllegalStateException("pipeline is finished", e);
+        }
+        submitted.increment();
+        return this;
+    }
+
+    public IngestionPipeline submit(Path file) throws InterruptedException {
+        return submit(new FileDocumentSource(file.toFile()));
+    }
+
+    private void process(OWLOntologyDocumentSource source) {
+        try {
+            OWLOntology ontology = timed(Stage.PARSE, source, () -> parse(source));
+            if (ontology == null) {
+                return;
+            }
+            List<OWLAxiom> canonical = timed(Stage.CANONICALIZE, source, () -> canonicalize(ontology));
+            ontology.getOWLOntologyManager().removeOntology(ontology);
+            if (canonical != null) {
+                parsed.put(new Document(source, canonical));
+            }
+        } catch (InterruptedException e) {
+            // the document never left this stage
+            failed(source, Stage.CANONICALIZE, e);
+            Thread.currentThread().interrupt();
+        } finally {
+            parsing.release();
+        }
+    }
+
+    private OWLOntology parse(OWLOntologyDocumentSource source) throws OWLOntologyCreationException {
+        OWLOntologyManager scratch = OWLManager.createOWLOntologyManager();
+        OWLOntologyLoaderConfiguration config = new OWLOntologyLoaderConfiguration()
+                .setMissingImportHandlingStrategy(MissingImportHandlingStrategy.SILENT);
+        return scratch.loadOntologyFromOntologyDocument(source, config);
+    }
+
+    private List<OWLAxiom> canonicalize(OWLOntology ontology) {
+        EntityCache cache = helper.getEntityCache();
+        Map<OWLEntity, IRI> iris = new HashMap<>();
+        for (OWLEntity entity : ontology.getSignature()) {
+            iris.put(entity, cache.iri(entity.getIRI().toString()));
+        }
+        OWLObjectDuplicator duplicator = new OWLObjectDuplicator(iris, helper.df);
+        List<OWLAxiom> canonical = new ArrayList<>(ontology.getAxiomCount());
+        for (OWLAxiom axiom : ontology.getAxioms()) {
+            canonical.add(duplicator.duplicateObject(axiom));
+        }
+        return canonical;
+    }
+
+    private void commitAll() {
+        try {
+            for (Document document = parsed.take(); document != END; document = parsed.take()) {
+                if (!batch.isEmpty() && batchAxioms + document.axioms.size() > batchSize) {
+                    commitBatch();
+                }
+                batch.add(document);
+                batchAxioms += document.axioms.size();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            commitBatch();
+        }
+    }
+
+    /**
+     * Adds the batch's documents to the loader and flushes it. A document bigger than the batch
+     * size is a batch of its own, and the loader flushes it in several chunks.
+     */
+    private void commitBatch() {
+        if (batch.isEmpty()) {
+            return;
+        }
+        long begin = System.nanoTime();
+        try {
+            for (Document document : batch) {
+                loader.addAxioms(document.axioms.iterator());
+            }
+            loader.flush();
+            metrics.get(Stage.COMMIT).record(batch.size(), System.nanoTime() - begin);
+            for (Document document : batch) {
+                committed.increment();
+                axioms.add(document.axioms.size());
+            }
+        } catch (RuntimeException e) {
+            loader.discard();
+            metrics.get(Stage.COMMIT).record(batch.size(), System.nanoTime() - begin);
+            for (Document document : batch) {
+                failed(document.source, Stage.COMMIT, e);
+            }
+        }
+        batch.clear();
+        batchAxioms = 0;
+    }
+
+    /**
+     * Runs one stage for one document, returning null (and recording the failure) if it throws.
+     */
+    private <T> T timed(Stage stage, OWLOntologyDocumentSource source, Callable<T> work) {
+        long begin = System.nanoTime();
+        try {
+            T result = work.call();
+            metrics.get(stage).record(System.nanoTime() - begin);
+            return result;
+        } catch (Exception e) {
+            metrics.get(stage).record(System.nanoTime() - begin);
+            failed(source, stage, e);
+            return null;
+        }
+    }
+
+    private void failed(OWLOntologyDocumentSource source, Stage stage, Exception e) {
+        metrics.get(stage).failed();
+        failures.add(new IngestionStatistics.Failure(source.getDocumentIRI(), stage, e));
+    }
+
+    /**
+     * Waits for every submitted document to be parsed and committed, then flushes the last batch.
+     * Nothing can be submitted afterwards.
+     *
+     * @return what the pipeline did
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public synchronized IngestionStatistics finish() throws InterruptedException {
+        if (finishedAt == 0) {
+            workers.shutdown();
+            workers.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+            parsed.put(END);
+            committer.join();
+            long begin = System.nanoTime();
+            loader.finish();
+            metrics.get(Stage.COMMIT).addTime(System.nanoTime() - begin);
+            finishedAt = System.nanoTime();
+        }
+        return getStatistics();
+    }
+
+    /**
+     * @return the statistics so far; safe to call while documents are still flowing
+     */
+    public IngestionStatistics getStatistics() {
+        Map<Stage, IngestionStatistics.StageStatistics> stages = new EnumMap<>(Stage.class);
+        metrics.forEach((stage, m) -> stages.put(stage, m.snapshot()));
+        long end = finishedAt == 0 ? System.nanoTime() : finishedAt;
+        return new IngestionStatistics(submitted.sum(), committed.sum(), axioms.sum(), end - start,
+                parsed.size(), stages, new ArrayList<>(failures));
+    }
+
+    @Override
+    public void close() {
+        try {
+            finish();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static class Document {
+        final OWLOntologyDocumentSource source;
+        final List<OWLAxiom> axioms;
+
+        Document(OWLOntologyDocumentSource source, List<OWLAxiom> axioms) {
+            this.source = source;
+            this.axioms = axioms;
+        }
+    }
+
+    private static class StageMetrics {
+        final LongAdder documents = new LongAdder();
+        final LongAdder failures = new LongAdder();
+        final LongAdder nanos = new LongAdder();
+        final LongAccumulator slowest = new LongAccumulator(Math::max, 0);
+
+        void record(long elapsed) {
+            record(1, elapsed);
+        }
+
+        void record(int count, long elapsed) {
+            documents.add(count);
+            addTime(elapsed);
+            slowest.accumulate(elapsed);
+        }
+
+        void addTime(long elapsed) {
+            nanos.add(elapsed);
+        }
+
+        void failed() {
+            failures.increment();
+        }
+
+        IngestionStatistics.StageStatistics snapshot() {
+            return new IngestionStatistics.StageStatistics(documents.sum(), failures.sum(), nanos.sum(), slowest.get());
+        }
+    }
+}
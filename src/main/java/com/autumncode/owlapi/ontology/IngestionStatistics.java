@@ -0,0 +1,152 @@
+package com.autumncode.owlapi.ontology;
+
+import org.semanticweb.owlapi.model.IRI;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * What an {@link IngestionPipeline} has done: documents in and out, time spent in each stage,
+ * and which documents failed where.
+ */
+public class IngestionStatistics {
+    private final long submitted;
+    private final long committed;
+    private final long axioms;
+    private final long elapsedNanos;
+    private final int queued;
+    private final Map<IngestionPipeline.Stage, StageStatistics> stages;
+    private final List<Failure> failures;
+
+    IngestionStatistics(long submitted, long committed, long axioms, long elapsedNanos, int queued,
+                        Map<IngestionPipeline.Stage, StageStatistics> stages, List<Failure> failures) {
+        this.submitted = submitted;
+        this.committed = committed;
+        this.axioms = axioms;
+        this.elapsedNanos = elapsedNanos;
+        this.queued = queued;
+        this.stages = Collections.unmodifiableMap(stages);
+        this.failures = Collections.unmodifiableList(failures);
+    }
+
+    public long getSubmitted() {
+        return submitted;
+    }
+
+    public long getCommitted() {
+        return committed;
+    }
+
+    public long getAxioms() {
+        return axioms;
+    }
+
+    public long getElapsed(TimeUnit unit) {
+        return unit.convert(elapsedNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * @return parsed documents waiting for the committer
+     */
+    public int getQueued() {
+        return queued;
+    }
+
+    public double getDocumentsPerSecond() {
+        return elapsedNanos == 0 ? 0 : committed * 1e9 / elapsedNanos;
+    }
+
+    public StageStatistics getStage(IngestionPipeline.Stage stage) {
+        return stages.get(stage);
+    }
+
+    public List<Failure> getFailures() {
+        return failures;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder(String.format("%d/%d documents, %d axioms in %d ms (%.0f documents/sec)",
+                committed, submitted, axioms, getElapsed(TimeUnit.MILLISECONDS), getDocumentsPerSecond()));
+        stages.forEach((stage, s) -> sb.append("\n  ").append(stage).append(": ").append(s));
+        return sb.toString();
+    }
+
+    /**
+     * Timings for one stage. Times are summed over documents, so with parallel stages the total
+     * can exceed the pipeline's elapsed time.
+     */
+    public static class StageStatistics {
+        private final long documents;
+        private final long failures;
+        private final long nanos;
+        private final long slowestNanos;
+
+        StageStatistics(long documents, long failures, long nanos, long slowestNanos) {
+            this.documents = documents;
+            this.failures = failures;
+            this.nanos = nanos;
+            this.slowestNanos = slowestNanos;
+        }
+
+        public long getDocuments() {
+            return documents;
+        }
+
+        public long getFailures() {
+            return failures;
+        }
+
+        public long getTotalTime(TimeUnit unit) {
+            return unit.convert(nanos, TimeUnit.NANOSECONDS);
+        }
+
+        public long getMeanTime(TimeUnit unit) {
+            return documents == 0 ? 0 : unit.convert(nanos / documents, TimeUnit.NANOSECONDS);
+        }
+
+        public long getSlowest(TimeUnit unit) {
+            return unit.convert(slowestNanos, TimeUnit.NANOSECONDS);
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d documents (%d failed), mean %d us, slowest %d us",
+                    documents, failures, getMeanTime(TimeUnit.MICROSECONDS), getSlowest(TimeUnit.MICROSECONDS));
+        }
+    }
+
+    /**
+     * A document that was dropped, and the stage it was dropped at.
+     */
+    public static class Failure {
+        private final IRI document;
+        private final IngestionPipeline.Stage stage;
+        private final Exception cause;
+
+        Failure(IRI document, IngestionPipeline.Stage stage, Exception cause) {
+            this.document = document;
+            this.stage = stage;
+            this.cause = cause;
+        }
+
+        public IRI getDocument() {
+            return document;
+        }
+
+        public IngestionPipeline.Stage getStage() {
+            return stage;
+        }
+
+        public Exception getCause() {
+            return cause;
+        }
+
+        @Override
+        public String toString() {
+            return document + " failed at " + stage + ": " + cause;
+        }
+    }
+}
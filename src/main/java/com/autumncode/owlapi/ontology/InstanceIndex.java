@@ -0,0 +1,529 @@
+package com.autumncode.owlapi.ontology;
+
+import org.semanticweb.owlapi.model.*;
+import org.semanticweb.owlapi.model.parameters.Imports;
+import org.semanticweb.owlapi.reasoner.InferenceType;
+import org.semanticweb.owlapi.reasoner.OWLReasoner;
+import org.semanticweb.owlapi.reasoner.OWLReasonerFactory;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+
+/**
+ * The inferred class&rarr;instances and instance&rarr;types maps of an ontology, computed once
+ * and then kept up to date as changes are applied.
+ *
+ * <p>The tests build this map by asking a reasoner for the instances of one class at a time.
+ * Here the classes are split across a fork-join pool, with one reasoner per worker, and the
+ * results are stored as sorted int arrays keyed by class and individual ids; lookups don't touch
+ * the reasoner at all.</p>
+ *
+ * <p>Changes are handled as they're applied. While the TBox is nothing but subclass axioms
+ * between named classes, a new class assertion or named subclass axiom is patched in directly
+ * using the stored superclass closure: nothing else can follow from it. Otherwise (equivalent or
+ * defined classes, restrictions, disjointness) an assertion can imply more than the stored
+ * closure says, so it marks the individuals involved and the asserted class and its subclasses
+ * instead; if the TBox mentions object properties or individuals, an assertion can change the
+ * types of other individuals too, and the whole index is marked stale. A removed assertion marks
+ * the individuals involved; a removed named subclass axiom marks the subclass. Marked classes
+ * and individuals are re-queried through the helper's {@link ReasonerSession} on the next read.
+ * Any other change to the TBox marks the whole index stale, and it's rebuilt (in parallel) on
+ * the next read.</p>
+ */
+public class InstanceIndex implements AutoCloseable {
+    private static final int LEAF_SIZE = 32;
+
+    private final OntologyHelper helper;
+    private final OWLOntology ontology;
+    private final OWLReasonerFactory factory;
+    private final int parallelism;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final OWLOntologyChangeListener listener = this::changed;
+    private final Consumer<OWLOntology> reloadListener = this::reloaded;
+
+    private final Map<OWLClass, Integer> classIds = new HashMap<>();
+    private final List<OWLClass> classes = new ArrayList<>();
+    private final Map<OWLNamedIndividual, Integer> individualIds = new HashMap<>();
+    private final List<OWLNamedIndividual> individuals = new ArrayList<>();
+    private final List<SortedIntSet> instancesByClass = new ArrayList<>();
+    private final List<SortedIntSet> superclassesByClass = new ArrayList<>();
+    private final List<SortedIntSet> typesByIndividual = new ArrayList<>();
+
+    private final Set<OWLClass> dirtyClasses = new HashSet<>();
+    private final Set<OWLNamedIndividual> dirtyIndividuals = new HashSet<>();
+    private boolean stale = true;
+    /**
+     * Whether the TBox is only named subclass axioms, so assertions can be patched in place.
+     */
+    private boolean simpleTBox;
+    /**
+     * Whether the TBox can carry types from one individual to another, through properties or
+     * nominals.
+     */
+    private boolean linkedTBox;
+
+    InstanceIndex(OntologyHelper helper, OWLOntology ontology, OWLReasonerFactory factory, int parallelism) {
+        this.helper = helper;
+        this.ontology = ontology;
+        this.factory = factory;
+        this.parallelism = parallelism;
+        ontology.getOWLOntologyManager().addOntologyChangeListener(listener);
+        helper.reloadListeners.add(reloadListener);
+        lock.writeLock().lock();
+        try {
+            rebuild();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public OWLOntology getOntology() {
+        return ontology;
+    }
+
+    /**
+     * @param clazz a class
+     * @return every inferred instance of the class (not just the direct ones)
+     */
+    public List<OWLNamedIndividual> getInstances(OWLClass clazz) {
+        lock.readLock().lock();
+        try {
+            if (refreshNeeded()) {
+                lock.readLock().unlock();
+                refresh();
+                lock.readLock().lock();
+            }
+            Integer id = classIds.get(clazz);
+            return id == null ? Collections.emptyList() : resolve(instancesByClass.get(id).toArray(), individuals);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @param individual an individual
+     * @return every inferred named type of the individual, other than owl:Thing
+     */
+    public List<OWLClass> getTypes(OWLNamedIndividual individual) {
+        lock.readLock().lock();
+        try {
+            if (refreshNeeded()) {
+                lock.readLock().unlock();
+                refresh();
+                lock.readLock().lock();
+            }
+            Integer id = individualIds.get(individual);
+            return id == null ? Collections.emptyList() : resolve(typesByIndividual.get(id).toArray(), classes);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public boolean isInstance(OWLNamedIndividual individual, OWLClass clazz) {
+        lock.readLock().lock();
+        try {
+            if (refreshNeeded()) {
+                lock.readLock().unlock();
+                refresh();
+                lock.readLock().lock();
+            }
+            Integer classId = classIds.get(clazz);
+            Integer individualId = individualIds.get(individual);
+            return classId != null && individualId != null && instancesByClass.get(classId).contains(individualId);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int getInstanceCount(OWLClass clazz) {
+        return getInstances(clazz).size();
+    }
+
+    /**
+     * Stops following changes to the ontology.
+     */
+    @Override
+    public void close() {
+        ontology.getOWLOntologyManager().removeOntologyChangeListener(listener);
+        helper.reloadListeners.remove(reloadListener);
+    }
+
+    private static <T> List<T> resolve(int[] ids, List<T> dictionary) {
+        List<T> result = new ArrayList<>(ids.length);
+        for (int id : ids) {
+            result.add(dictionary.get(id));
+        }
+        return result;
+    }
+
+    private boolean refreshNeeded() {
+        return stale || !dirtyClasses.isEmpty() || !dirtyIndividuals.isEmpty();
+    }
+
+    private void refresh() {
+        lock.writeLock().lock();
+        try {
+            if (stale) {
+                rebuild();
+            } else if (refreshNeeded()) {
+                OWLReasoner reasoner = helper.getReasonerPool().session(ontology).getReasoner();
+                refreshClasses(reasoner);
+                for (OWLNamedIndividual individual : dirtyIndividuals) {
+                    Set<OWLClass> types = reasoner.getTypes(individual, false).getFlattened();
+                    int id = individualId(individual);
+                    SortedIntSet current = typesByIndividual.get(id);
+                    for (int classId : current.toArray()) {
+                        if (!types.contains(classes.get(classId))) {
+                            current.remove(classId);
+                            instancesByClass.get(classId).remove(id);
+                        }
+                    }
+                    for (OWLClass type : types) {
+                        if (!type.isOWLThing()) {
+                            int classId = classId(type);
+                            current.add(classId);
+                            instancesByClass.get(classId).add(id);
+                        }
+                    }
+                }
+                dirtyIndividuals.clear();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Re-queries the superclasses of classes that lost a subclass axiom, and of everything below
+     * them, and marks their instances for re-querying too.
+     */
+    private void refreshClasses(OWLReasoner reasoner) {
+        Set<Integer> affected = new HashSet<>();
+        for (OWLClass clazz : dirtyClasses) {
+            int id = classId(clazz);
+            affected.add(id);
+            for (int other = 0; other < classes.size(); other++) {
+                if (superclassesByClass.get(other).contains(id)) {
+                    affected.add(other);
+                }
+            }
+        }
+        for (int id : affected) {
+            OWLClass clazz = classes.get(id);
+            SortedIntSet closure = new SortedIntSet();
+            Set<OWLClass> supers = new HashSet<>(reasoner.getSuperClasses(clazz, false).getFlattened());
+            supers.addAll(reasoner.getEquivalentClasses(clazz).getEntitiesMinus(clazz));
+            for (OWLClass superclass : supers) {
+                if (!superclass.isOWLThing()) {
+                    closure.add(classId(superclass));
+                }
+            }
+            superclassesByClass.set(id, closure);
+            SortedIntSet members = instancesByClass.get(id);
+            for (int i = 0; i < members.size(); i++) {
+                dirtyIndividuals.add(individuals.get(members.get(i)));
+            }
+        }
+        dirtyClasses.clear();
+    }
+
+    /**
+     * Recomputes everything, with the classes divided among <code>parallelism</code> reasoners.
+     * Called with the write lock held.
+     */
+    private void rebuild() {
+        classIds.clear();
+        classes.clear();
+        individualIds.clear();
+        individuals.clear();
+        instancesByClass.clear();
+        superclassesByClass.clear();
+        typesByIndividual.clear();
+        dirtyClasses.clear();
+        dirtyIndividuals.clear();
+        for (OWLClass clazz : ontology.getClassesInSignature()) {
+            if (!clazz.isOWLThing()) {
+                classId(clazz);
+            }
+        }
+        for (OWLNamedIndividual individual : ontology.getIndividualsInSignature()) {
+            individualId(individual);
+        }
+        classifyTBox();
+
+        OntologyOperationEvent event = helper.instrumentation.start();
+        int n = classes.size();
+        int[][] instances = new int[n][];
+        int[][] superclasses = new int[n][];
+        // reasoners are created one at a time, since creating one reads the whole ontology;
+        // the (read-only) queries are what runs in parallel
+        BlockingQueue<OWLReasoner> reasoners = new ArrayBlockingQueue<>(parallelism);
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            for (int i = 0; i < parallelism; i++) {
+                reasoners.add(factory.createNonBufferingReasoner(ontology));
+            }
+            pool.submit(() -> reasoners.parallelStream()
+                    .forEach(r -> r.precomputeInferences(InferenceType.CLASS_HIERARCHY))).get();
+            pool.invoke(new Materialize(reasoners, 0, n, instances, superclasses));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("interrupted while materializing instances", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("could not materialize instances", e.getCause());
+        } finally {
+            pool.shutdown();
+            reasoners.forEach(OWLReasoner::dispose);
+        }
+
+        int[] typeCounts = new int[individuals.size()];
+        for (int[] members : instances) {
+            for (int member : members) {
+                typeCounts[member]++;
+            }
+        }
+        int[][] types = new int[individuals.size()][];
+        for (int i = 0; i < types.length; i++) {
+            types[i] = new int[typeCounts[i]];
+            typeCounts[i] = 0;
+        }
+        // class ids are visited in increasing order, so each types array comes out sorted
+        for (int classId = 0; classId < n; classId++) {
+            instancesByClass.set(classId, new SortedIntSet(instances[classId]));
+            superclassesByClass.set(classId, new SortedIntSet(superclasses[classId]));
+            for (int member : instances[classId]) {
+                types[member][typeCounts[member]++] = classId;
+            }
+        }
+        for (int i = 0; i < types.length; i++) {
+            typesByIndividual.set(i, new SortedIntSet(types[i]));
+        }
+        stale = false;
+        helper.instrumentation.stop(event, Instrumentation.Operation.REASON, ontology, "materialize", n);
+    }
+
+    private int classId(OWLClass clazz) {
+        Integer id = classIds.get(clazz);
+        if (id == null) {
+            id = classes.size();
+            classIds.put(clazz, id);
+            classes.add(clazz);
+            instancesByClass.add(new SortedIntSet());
+            superclassesByClass.add(new SortedIntSet());
+        }
+        return id;
+    }
+
+    private int individualId(OWLNamedIndividual individual) {
+        Integer id = individualIds.get(individual);
+        if (id == null) {
+            id = individuals.size();
+            individualIds.put(individual, id);
+            individuals.add(individual);
+            typesByIndividual.add(new SortedIntSet());
+        }
+        return id;
+    }
+
+    private void changed(List<? extends OWLOntologyChange> changes) {
+        lock.writeLock().lock();
+        try {
+            for (OWLOntologyChange change : changes) {
+                if (change.getOntology() == ontology && change.isAxiomChange() && !stale) {
+                    apply(change.getAxiom(), change.isAddAxiom());
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void reloaded(OWLOntology o) {
+        if (o == ontology) {
+            lock.writeLock().lock();
+            try {
+                stale = true;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+    }
+
+    private void apply(OWLAxiom axiom, boolean added) {
+        if (!axiom.isLogicalAxiom()) {
+            return;
+        }
+        boolean assertion = AxiomType.ABoxAxiomTypes.contains(axiom.getAxiomType());
+        if (assertion && linkedTBox) {
+            stale = true;
+        } else if (axiom instanceof OWLClassAssertionAxiom) {
+            OWLClassAssertionAxiom ax = (OWLClassAssertionAxiom) axiom;
+            boolean named = !ax.getClassExpression().isAnonymous() && !ax.getClassExpression().isOWLNothing();
+            if (added && simpleTBox && named && ax.getIndividual().isNamed()) {
+                addType(individualId(ax.getIndividual().asOWLNamedIndividual()), classId(ax.getClassExpression().asOWLClass()));
+            } else {
+                markDirty(axiom);
+                if (named && !ax.getClassExpression().isOWLThing()) {
+                    dirtyClasses.add(ax.getClassExpression().asOWLClass());
+                }
+            }
+        } else if (isNamedSubclass(axiom)) {
+            OWLSubClassOfAxiom ax = (OWLSubClassOfAxiom) axiom;
+            if (added && simpleTBox) {
+                addSuperclass(classId(ax.getSubClass().asOWLClass()), classId(ax.getSuperClass().asOWLClass()));
+            } else if (!simpleTBox) {
+                // a defined class elsewhere in the TBox may gain or lose instances
+                stale = true;
+            } else {
+                dirtyClasses.add(ax.getSubClass().asOWLClass());
+            }
+        } else if (assertion) {
+            markDirty(axiom);
+        } else {
+            stale = true;
+        }
+    }
+
+    private void classifyTBox() {
+        simpleTBox = true;
+        linkedTBox = false;
+        List<OWLAxiom> tbox = new ArrayList<>(ontology.getTBoxAxioms(Imports.INCLUDED));
+        tbox.addAll(ontology.getRBoxAxioms(Imports.INCLUDED));
+        for (OWLAxiom axiom : tbox) {
+            if (!isNamedSubclass(axiom)) {
+                simpleTBox = false;
+            }
+            if (!axiom.getObjectPropertiesInSignature().isEmpty() || !axiom.getIndividualsInSignature().isEmpty()) {
+                linkedTBox = true;
+            }
+        }
+    }
+
+    /**
+     * @return whether the axiom is <code>A SubClassOf B</code> for named classes other than
+     * owl:Nothing, which is what the stored closure can represent
+     */
+    private static boolean isNamedSubclass(OWLAxiom axiom) {
+        if (!(axiom instanceof OWLSubClassOfAxiom)) {
+            return false;
+        }
+        OWLSubClassOfAxiom ax = (OWLSubClassOfAxiom) axiom;
+        return !ax.getSubClass().isAnonymous() && !ax.getSuperClass().isAnonymous()
+                && !ax.getSuperClass().isOWLNothing();
+    }
+
+    private void markDirty(OWLAxiom axiom) {
+        dirtyIndividuals.addAll(axiom.getIndividualsInSignature());
+    }
+
+    /**
+     * Gives an individual a class and all of its (known) superclasses.
+     */
+    private void addType(int individual, int clazz) {
+        SortedIntSet types = typesByIndividual.get(individual);
+        if (types.add(clazz)) {
+            instancesByClass.get(clazz).add(individual);
+        }
+        SortedIntSet superclasses = superclassesByClass.get(clazz);
+        for (int i = 0; i < superclasses.size(); i++) {
+            int superclass = superclasses.get(i);
+            if (types.add(superclass)) {
+                instancesByClass.get(superclass).add(individual);
+            }
+        }
+    }
+
+    /**
+     * Makes <code>superclass</code> (and its superclasses) a superclass of <code>subclass</code>
+     * and of everything below it, and gives all of their instances the new types.
+     */
+    private void addSuperclass(int subclass, int superclass) {
+        int[] added = superclassesByClass.get(superclass).toArray();
+        List<Integer> affected = new ArrayList<>();
+        affected.add(subclass);
+        for (int clazz = 0; clazz < classes.size(); clazz++) {
+            if (superclassesByClass.get(clazz).contains(subclass)) {
+                affected.add(clazz);
+            }
+        }
+        for (int clazz : affected) {
+            SortedIntSet closure = superclassesByClass.get(clazz);
+            if (clazz != superclass) {
+                closure.add(superclass);
+            }
+            for (int s : added) {
+                if (s != clazz) {
+                    closure.add(s);
+                }
+            }
+        }
+        for (int member : instancesByClass.get(subclass).toArray()) {
+            addType(member, subclass);
+        }
+    }
+
+    /**
+     * Queries instances and superclasses for a range of class ids, splitting the range until
+     * it's small enough for one reasoner.
+     */
+    private class Materialize extends RecursiveAction {
+        private final BlockingQueue<OWLReasoner> reasoners;
+        private final int from;
+        private final int to;
+        private final int[][] instances;
+        private final int[][] superclasses;
+
+        Materialize(BlockingQueue<OWLReasoner> reasoners, int from, int to, int[][] instances, int[][] superclasses) {
+            this.reasoners = reasoners;
+            this.from = from;
+            this.to = to;
+            this.instances = instances;
+            this.superclasses = superclasses;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > LEAF_SIZE) {
+                int middle = (from + to) >>> 1;
+                invokeAll(new Materialize(reasoners, from, middle, instances, superclasses),
+                        new Materialize(reasoners, middle, to, instances, superclasses));
+                return;
+            }
+            OWLReasoner reasoner;
+            try {
+                reasoner = reasoners.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException(e);
+            }
+            try {
+                for (int id = from; id < to; id++) {
+                    OWLClass clazz = classes.get(id);
+                    instances[id] = ids(reasoner.getInstances(clazz, false).getFlattened(), individualIds);
+                    Set<OWLClass> supers = new HashSet<>(reasoner.getSuperClasses(clazz, false).getFlattened());
+                    supers.addAll(reasoner.getEquivalentClasses(clazz).getEntitiesMinus(clazz));
+                    superclasses[id] = ids(supers, classIds);
+                }
+            } finally {
+                reasoners.add(reasoner);
+            }
+        }
+
+        private <T> int[] ids(Set<T> entities, Map<T, Integer> dictionary) {
+            int[] ids = new int[entities.size()];
+            int count = 0;
+            for (T entity : entities) {
+                Integer id = dictionary.get(entity);
+                if (id != null) {
+                    ids[count++] = id;
+                }
+            }
+            ids = Arrays.copyOf(ids, count);
+            Arrays.sort(ids);
+            return ids;
+        }
+    }
+}
@@ -0,0 +1,212 @@
+package com.autumncode.owlapi.ontology;
+
+import io.micrometer.core.instrument.*;
+import org.semanticweb.owlapi.model.OWLDocumentFormat;
+import org.semanticweb.owlapi.model.OWLOntology;
+import org.semanticweb.owlapi.model.OWLOntologyChange;
+
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Times OntologyHelper operations, as JFR events and (if a registry is configured) as
+ * Micrometer meters. The disabled instance only pays for the JFR event, which the JIT reduces
+ * to almost nothing when no recording is running.
+ *
+ * <p>Meters:</p>
+ * <ul>
+ * <li><code>owl.operation</code> - a timer with a percentile histogram, tagged with the
+ * operation and its kind (document format or reasoner query);</li>
+ * <li><code>owl.axioms.added</code> and <code>owl.axioms.removed</code> - counters per
+ * ontology;</li>
+ * <li><code>owl.ontology.axioms</code> - a gauge per ontology;</li>
+ * <li>(the per-ontology meters are tagged with the ontology IRI, and removed when an ontology
+ * leaves the helper, so unloading and reloading doesn't pile up series)</li>
+ * <li><code>owl.reasoner.sessions</code> and <code>owl.reasoner.session.requests</code> - the
+ * reasoner pool's size, and its hits and misses;</li>
+ * <li><code>owl.registry.ontologies</code>, <code>owl.registry.requests</code> and
+ * <code>owl.registry.evictions</code> - per {@link OntologyRegistry}, tagged with a number that
+ * tells registries apart, and removed when the registry is closed.</li>
+ * </ul>
+ */
+final class Instrumentation {
+    static final Instrumentation DISABLED = new Instrumentation(null);
+
+    enum Operation {
+        READ("read"), WRITE("write"), APPLY("apply"), REASON("reason");
+
+        final String tag;
+
+        Operation(String tag) {
+            this.tag = tag;
+        }
+    }
+
+    private final MeterRegistry registry;
+    private final ConcurrentMap<String, Timer> timers = new ConcurrentHashMap<>();
+    private final AtomicInteger registries = new AtomicInteger();
+
+    Instrumentation(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    boolean isEnabled() {
+        return registry != null;
+    }
+
+    OntologyOperationEvent start() {
+        OntologyOperationEvent event = new OntologyOperationEvent();
+        event.begin();
+        if (registry != null) {
+            event.startNanos = System.nanoTime();
+        }
+        return event;
+    }
+
+    void stop(OntologyOperationEvent event, Operation operation, OWLOntology o, String kind, int axioms) {
+        event.end();
+        if (event.shouldCommit()) {
+            event.operation = operation.tag;
+            event.ontology = name(o);
+            event.kind = kind;
+            event.axioms = axioms;
+            event.commit();
+        }
+        if (registry != null) {
+            timer(operation, kind).record(System.nanoTime() - event.startNanos, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * Stops an apply, counting the axioms added to and removed from each ontology.
+     */
+    void applied(OntologyOperationEvent event, List<? extends OWLOntologyChange> changes) {
+        OWLOntology first = changes.isEmpty() ? null : changes.get(0).getOntology();
+        stop(event, Operation.APPLY, first, "changes", changes.size());
+        if (registry == null) {
+            return;
+        }
+        OWLOntology ontology = null;
+        int added = 0;
+        int removed = 0;
+        for (OWLOntologyChange change : changes) {
+            if (change.getOntology() != ontology) {
+                count(ontology, added, removed);
+                ontology = change.getOntology();
+                added = 0;
+                removed = 0;
+            }
+            if (change.isAddAxiom()) {
+                added++;
+            } else if (change.isRemoveAxiom()) {
+                removed++;
+            }
+        }
+        count(ontology, added, removed);
+    }
+
+    private void count(OWLOntology o, int added, int removed) {
+        if (added > 0) {
+            registry.counter("owl.axioms.added", "ontology", name(o)).increment(added);
+        }
+        if (removed > 0) {
+            registry.counter("owl.axioms.removed", "ontology", name(o)).increment(removed);
+        }
+    }
+
+    /**
+     * Registers the axiom count gauge for an ontology. The gauge holds the ontology weakly.
+     */
+    void ontologyAdded(OWLOntology o) {
+        if (registry != null) {
+            Gauge.builder("owl.ontology.axioms", o, OWLOntology::getAxiomCount)
+                    .tag("ontology", name(o))
+                    .register(registry);
+        }
+    }
+
+    /**
+     * Removes an ontology's gauge and counters. Anonymous ontologies share one series, which goes
+     * with the first of them to be removed.
+     */
+    void ontologyRemoved(OWLOntology o) {
+        if (registry != null) {
+            String name = name(o);
+            for (String meter : new String[]{"owl.ontology.axioms", "owl.axioms.added", "owl.axioms.removed"}) {
+                for (Meter m : registry.find(meter).tag("ontology", name).meters()) {
+                    registry.remove(m);
+                }
+            }
+        }
+    }
+
+    void monitor(ReasonerPool pool) {
+        if (registry != null) {
+            Gauge.builder("owl.reasoner.sessions", pool, ReasonerPool::size).register(registry);
+            FunctionCounter.builder("owl.reasoner.session.requests", pool, p -> p.stats().hitCount())
+                    .tag("result", "hit")
+                    .register(registry);
+            FunctionCounter.builder("owl.reasoner.session.requests", pool, p -> p.stats().missCount())
+                    .tag("result", "miss")
+                    .register(registry);
+        }
+    }
+
+    /**
+     * @return the meters registered for the registry, to pass to {@link #remove} when it's closed
+     */
+    List<Meter> monitor(OntologyRegistry ontologies) {
+        if (registry == null) {
+            return List.of();
+        }
+        String id = String.valueOf(registries.incrementAndGet());
+        return List.of(
+                Gauge.builder("owl.registry.ontologies", ontologies, OntologyRegistry::size)
+                        .tag("registry", id)
+                        .register(registry),
+                FunctionCounter.builder("owl.registry.requests", ontologies, r -> r.getStatistics().getHits())
+                        .tag("registry", id)
+                        .tag("result", "hit")
+                        .register(registry),
+                FunctionCounter.builder("owl.registry.requests", ontologies, r -> r.getStatistics().getMisses())
+                        .tag("registry", id)
+                        .tag("result", "miss")
+                        .register(registry),
+                FunctionCounter.builder("owl.registry.evictions", ontologies, r -> r.getStatistics().getEvictions())
+                        .tag("registry", id)
+                        .register(registry));
+    }
+
+    void remove(List<Meter> meters) {
+        for (Meter meter : meters) {
+            registry.remove(meter);
+        }
+    }
+
+    private Timer timer(Operation operation, String kind) {
+        String key = operation.tag + '/' + kind;
+        Timer timer = timers.get(key);
+        if (timer == null) {
+            timer = timers.computeIfAbsent(key, k -> Timer.builder("owl.operation")
+                    .tag("operation", operation.tag)
+                    .tag("kind", kind)
+                    .publishPercentileHistogram()
+                    .register(registry));
+        }
+        return timer;
+    }
+
+    static String name(OWLOntology o) {
+        if (o == null || !o.getOntologyID().getOntologyIRI().isPresent()) {
+            return "anonymous";
+        }
+        return o.getOntologyID().getOntologyIRI().get().toString();
+    }
+
+    static String format(OWLDocumentFormat format) {
+        return format == null ? "unknown" : format.getKey();
+    }
+}
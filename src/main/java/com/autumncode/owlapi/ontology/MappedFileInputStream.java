@@ -0,0 +1,101 @@
+package com.autumncode.owlapi.ontology;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * An InputStream that reads a file through a sliding series of memory-mapped windows. Only one
+ * window is mapped at a time, so files larger than 2GB (the limit for a single mapping) are
+ * fine, and the file is never read into the heap as a whole: each read copies just the bytes it
+ * asks for out of the current window, which the parser's own buffer would hold anyway.
+ *
+ * <p>The current position can be read from another thread, which is how streaming loads report
+ * progress.</p>
+ */
+class MappedFileInputStream extends InputStream {
+    static final long WINDOW_SIZE = 256L * 1024 * 1024;
+
+    private final FileChannel channel;
+    private final long size;
+    private final long windowSize;
+    private MappedByteBuffer window;
+    private long windowStart;
+    private volatile long position;
+
+    MappedFileInputStream(Path file) throws IOException {
+        this(file, WINDOW_SIZE);
+    }
+
+    MappedFileInputStream(Path file, long windowSize) throws IOException {
+        this.channel = FileChannel.open(file, StandardOpenOption.READ);
+        this.size = channel.size();
+        this.windowSize = windowSize;
+    }
+
+    long size() {
+        return size;
+    }
+
+    long position() {
+        return position;
+    }
+
+    private boolean ensureWindow() throws IOException {
+        if (window != null && window.hasRemaining()) {
+            return true;
+        }
+        if (position >= size) {
+            return false;
+        }
+        windowStart = position;
+        window = channel.map(FileChannel.MapMode.READ_ONLY, windowStart, Math.min(windowSize, size - windowStart));
+        return true;
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (!ensureWindow()) {
+            return -1;
+        }
+        int b = window.get() & 0xff;
+        position = windowStart + window.position();
+        return b;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        if (!ensureWindow()) {
+            return -1;
+        }
+        int count = Math.min(len, window.remaining());
+        window.get(b, off, count);
+        position = windowStart + window.position();
+        return count;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        long skipped = Math.max(0, Math.min(n, size - position));
+        position += skipped;
+        window = null;
+        return skipped;
+    }
+
+    @Override
+    public int available() {
+        return (int) Math.min(Integer.MAX_VALUE, size - position);
+    }
+
+    @Override
+    public void close() throws IOException {
+        window = null;
+        channel.close();
+    }
+}
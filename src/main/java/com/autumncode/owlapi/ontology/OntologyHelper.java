@@ -1,5 +1,7 @@
 package com.autumncode.owlapi.ontology;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import org.openrdf.rio.RDFFormat;
 import org.semanticweb.owlapi.apibinding.OWLManager;
 import org.semanticweb.owlapi.formats.RDFXMLDocumentFormat;
 import org.semanticweb.owlapi.formats.RDFaDocumentFormat;
@@ -10,15 +12,197 @@ import org.semanticweb.owlapi.io.OWLOntologyDocumentTarget;
 import org.semanticweb.owlapi.io.StringDocumentTarget;
 import org.semanticweb.owlapi.model.*;
 import org.semanticweb.owlapi.vocab.OWL2Datatype;
+import uk.ac.manchester.cs.jfact.JFactFactory;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Path;
 import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 public class OntologyHelper {
-    OWLOntologyManager m = OWLManager.createOWLOntologyManager();
+    final OWLOntologyManager m;
     OWLDataFactory df = OWLManager.getOWLDataFactory();
+    final EntityCache cache;
+    final ReasonerPool reasoners;
+    final List<Consumer<OWLOntology>> reloadListeners = new CopyOnWriteArrayList<>();
+    final List<Consumer<OWLOntology>> removalListeners = new CopyOnWriteArrayList<>();
+    volatile Instrumentation instrumentation = Instrumentation.DISABLED;
 
+    public OntologyHelper() {
+        this(new EntityCache());
+    }
+
+    /**
+     * @param cache the IRI and entity cache to use; helpers can share one
+     */
+    public OntologyHelper(EntityCache cache) {
+        this(cache, OWLManager.createOWLOntologyManager());
+    }
+
+    OntologyHelper(EntityCache cache, OWLOntologyManager m) {
+        this.cache = cache;
+        this.m = m;
+        this.reasoners = new ReasonerPool(m);
+        removalListeners.add(reasoners::invalidate);
+        removalListeners.add(o -> instrumentation.ontologyRemoved(o));
+    }
+
+    /**
+     * Converts a string to an IRI, returning the same IRI instance for the same string as long
+     * as it stays in the cache.
+     *
+     * @param ns the full IRI, such as <code>http://autumncode.com/ontologies/person.owl#Person</code>
+     * @return the IRI
+     */
     public IRI convertStringToIRI(String ns) {
-        return IRI.create(ns);
+        return cache.iri(ns);
+    }
+
+    public EntityCache getEntityCache() {
+        return cache;
+    }
+
+    /**
+     * Starts recording this helper's operations in a Micrometer registry: an
+     * <code>owl.operation</code> timer per operation and format, <code>owl.axioms.added</code>
+     * and <code>owl.axioms.removed</code> counters and an <code>owl.ontology.axioms</code> gauge
+     * per ontology, and the reasoner pool's size and hit rate. {@link OntologyOperationEvent}s
+     * go to JFR whether or not a registry is set.
+     *
+     * @param registry the registry, or null to stop recording
+     */
+    public void setMeterRegistry(MeterRegistry registry) {
+        Instrumentation instrumentation = registry == null ? Instrumentation.DISABLED : new Instrumentation(registry);
+        for (OWLOntology o : m.getOntologies()) {
+            instrumentation.ontologyAdded(o);
+        }
+        instrumentation.monitor(reasoners);
+        this.instrumentation = instrumentation;
+        reasoners.instrumentation = instrumentation;
+    }
+
+    /**
+     * The reasoners this helper keeps for its ontologies. A session's reasoner stays up to date
+     * with changes made through {@link #applyChange(OWLAxiomChange...)}, so there's no need to
+     * create (or dispose) a reasoner around each query.
+     *
+     * @return the reasoner pool
+     */
+    public ReasonerPool getReasonerPool() {
+        return reasoners;
+    }
+
+    /**
+     * Checks whether an ontology is consistent by splitting its assertions into independent
+     * connected components and reasoning over them in parallel, one reasoner per available core.
+     * Unlike a single <code>isConsistent()</code> call, the report says which individuals are
+     * involved in each inconsistency.
+     *
+     * @param o the ontology to check
+     * @return the outcome, with every inconsistent component
+     */
+    public ConsistencyReport checkConsistency(OWLOntology o) {
+        return checkConsistency(o, Runtime.getRuntime().availableProcessors(), PartitionedConsistencyChecker.DEFAULT_PARTITION_SIZE);
+    }
+
+    /**
+     * @param o             the ontology to check
+     * @param parallelism   how many partitions are reasoned over at once
+     * @param partitionSize roughly how many assertions go into one reasoner; small components
+     *                      are packed together up to this size
+     * @return the outcome, with every inconsistent component
+     */
+    public ConsistencyReport checkConsistency(OWLOntology o, int parallelism, int partitionSize) {
+        OntologyOperationEvent event = instrumentation.start();
+        ConsistencyReport report = new PartitionedConsistencyChecker(o, new JFactFactory(), parallelism, partitionSize).check();
+        instrumentation.stop(event, Instrumentation.Operation.REASON, o, "checkConsistency", o.getAxiomCount());
+        return report;
+    }
+
+    /**
+     * Creates a registry that loads named ontologies into this helper on first access and
+     * unloads cold ones to stay within a budget. Its hit rate and evictions are recorded in the
+     * meter registry set when it's created.
+     *
+     * @param maxAxioms      how many axioms the registry's ontologies may hold, not counting
+     *                       their imports
+     * @param spillDirectory where evicted ontologies are written as snapshots, to be read back
+     *                       from there; null to reload them from their sources instead
+     * @return a new registry
+     */
+    public OntologyRegistry createRegistry(long maxAxioms, Path spillDirectory) {
+        return new OntologyRegistry(this, maxAxioms, spillDirectory);
+    }
+
+    /**
+     * Computes the inferred class&rarr;instances and instance&rarr;types maps of an ontology, using
+     * one reasoner per available core, and keeps them up to date as changes are applied.
+     *
+     * @param o the ontology to index
+     * @return the index; close it when it's no longer needed
+     */
+    public InstanceIndex materializeInstances(OWLOntology o) {
+        return materializeInstances(o, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * @param o           the ontology to index
+     * @param parallelism how many reasoners (and threads) to build the index with
+     * @return the index; close it when it's no longer needed
+     */
+    public InstanceIndex materializeInstances(OWLOntology o, int parallelism) {
+        return new InstanceIndex(this, o, new JFactFactory(), parallelism);
+    }
+
+    /**
+     * Indexes the axiom shapes the helper builds (restrictions from
+     * {@link #associateObjectPropertyWithClass}, disjointness from {@link #addDisjointClass},
+     * and property assertions) and keeps the indexes up to date as changes are applied.
+     *
+     * @param o the ontology to index
+     * @return the index; close it when it's no longer needed
+     */
+    public StructuralIndex structuralIndex(OWLOntology o) {
+        return new StructuralIndex(this, o);
+    }
+
+    /**
+     * Called when an ontology was changed without the manager broadcasting the changes, so that
+     * anything tracking it can start over.
+     *
+     * @param o the ontology that changed
+     */
+    void ontologyReloaded(OWLOntology o) {
+        reasoners.invalidate(o);
+        for (Consumer<OWLOntology> listener : reloadListeners) {
+            listener.accept(o);
+        }
+    }
+
+    /**
+     * Removes an ontology from the manager, and drops whatever the helper keeps for it.
+     *
+     * @param o the ontology to remove
+     */
+    public void removeOntology(OWLOntology o) {
+        m.removeOntology(o);
+        ontologyRemoved(o);
+    }
+
+    /**
+     * Called when an ontology has left the manager, so that anything kept for it can go too.
+     *
+     * @param o the ontology that was removed
+     */
+    void ontologyRemoved(OWLOntology o) {
+        for (Consumer<OWLOntology> listener : removalListeners) {
+            listener.accept(o);
+        }
     }
 
     /**
@@ -38,22 +222,164 @@ public class OntologyHelper {
         }
     }
 
+    /**
+     * Writes an ontology to <code>System.out</code> in functional syntax, whatever its own
+     * document format. Unlike {@link #dumpOWL(OWLOntology)}, the document is streamed a line at a
+     * time rather than built in memory first, so it suits ontologies too big for a String.
+     *
+     * @param ontology the ontology to display
+     */
+    public void dumpFunctionalSyntax(OWLOntology ontology) {
+        try {
+            streamingWriter(ontology).writeTo(System.out);
+        } catch (Exception e) {
+            // this is where Scala would be nice.
+            throw new RuntimeException(e);
+        }
+    }
+
     public OWLOntology createOntology(String iri) throws OWLOntologyCreationException {
         return createOntology(convertStringToIRI(iri));
     }
 
     public OWLOntology createOntology(IRI iri) throws OWLOntologyCreationException {
-        return m.createOntology(iri);
+        OWLOntology o = m.createOntology(iri);
+        instrumentation.ontologyAdded(o);
+        return o;
     }
 
     public void writeOntology(OWLOntology o, OWLOntologyDocumentTarget documentTarget)
             throws OWLOntologyStorageException {
+        OntologyOperationEvent event = instrumentation.start();
         m.saveOntology(o, documentTarget);
+        instrumentation.stop(event, Instrumentation.Operation.WRITE, o,
+                Instrumentation.format(m.getOntologyFormat(o)), o.getAxiomCount());
+    }
+
+    /**
+     * Writes an ontology in a specific document format, rather than the format it was
+     * loaded (or created) with.
+     *
+     * @param o              the ontology to write
+     * @param format         the format to render, e.g. <code>new RioTurtleDocumentFormat()</code>
+     * @param documentTarget where the rendered document goes
+     * @throws OWLOntologyStorageException if the ontology can't be rendered
+     */
+    public void writeOntology(OWLOntology o, OWLDocumentFormat format, OWLOntologyDocumentTarget documentTarget)
+            throws OWLOntologyStorageException {
+        OntologyOperationEvent event = instrumentation.start();
+        m.saveOntology(o, format, documentTarget);
+        instrumentation.stop(event, Instrumentation.Operation.WRITE, o, Instrumentation.format(format), o.getAxiomCount());
+    }
+
+    /**
+     * Creates a writer that renders an ontology in functional syntax one axiom at a time, in a
+     * deterministic order, optionally compressed and split into shards.
+     *
+     * @param o the ontology to write
+     * @return a new writer
+     */
+    public StreamingOntologyWriter streamingWriter(OWLOntology o) {
+        return new StreamingOntologyWriter(this, o);
     }
 
     public OWLOntology readOntology(OWLOntologyDocumentSource source)
             throws OWLOntologyCreationException {
-        return m.loadOntologyFromOntologyDocument(source);
+        OntologyOperationEvent event = instrumentation.start();
+        OWLOntology o = m.loadOntologyFromOntologyDocument(source);
+        instrumentation.stop(event, Instrumentation.Operation.READ, o,
+                Instrumentation.format(m.getOntologyFormat(o)), o.getAxiomCount());
+        instrumentation.ontologyAdded(o);
+        return o;
+    }
+
+    /**
+     * Writes an ontology as a binary snapshot: an interned IRI dictionary and compact records for
+     * the axiom shapes this class builds, with anything else carried along in functional syntax.
+     * Snapshots are meant for checkpoints and warm starts, not for exchange with other tools.
+     *
+     * @param o   the ontology to write
+     * @param out where the snapshot goes; flushed, but not closed
+     * @throws OWLOntologyStorageException if the snapshot can't be written
+     */
+    public void writeSnapshot(OWLOntology o, OutputStream out) throws OWLOntologyStorageException {
+        try {
+            OntologyOperationEvent event = instrumentation.start();
+            new SnapshotWriter(out).writeOntology(o);
+            instrumentation.stop(event, Instrumentation.Operation.WRITE, o, "snapshot", o.getAxiomCount());
+        } catch (IOException e) {
+            throw new OWLOntologyStorageException(e);
+        }
+    }
+
+    /**
+     * Reads an ontology written by {@link #writeSnapshot(OWLOntology, OutputStream)}.
+     *
+     * @param in the snapshot; read up to the end record, but not closed
+     * @return the ontology, created in this helper's manager
+     * @throws OWLOntologyCreationException if the snapshot is corrupt or the ontology exists
+     */
+    public OWLOntology readSnapshot(InputStream in) throws OWLOntologyCreationException {
+        try {
+            OntologyOperationEvent event = instrumentation.start();
+            OWLOntology o = new SnapshotReader(in, df).readOntology(this);
+            instrumentation.stop(event, Instrumentation.Operation.READ, o, "snapshot", o.getAxiomCount());
+            instrumentation.ontologyAdded(o);
+            return o;
+        } catch (IOException e) {
+            throw new OWLOntologyCreationException("could not read ontology snapshot", e);
+        }
+    }
+
+    /**
+     * Starts logging an ontology's changes to a directory, for cheap checkpoints: the ontology
+     * is written there as a base snapshot, and every change after that is appended to a
+     * memory-mapped log.
+     *
+     * @param o         the ontology to log
+     * @param directory where the base and the log go; anything already there is replaced
+     * @return the log; close it to stop logging
+     * @throws OWLOntologyStorageException if the base or the log can't be written
+     */
+    public ChangeLog recordChanges(OWLOntology o, Path directory) throws OWLOntologyStorageException {
+        try {
+            return ChangeLog.record(this, o, directory, ChangeLog.DEFAULT_COMPACT_THRESHOLD);
+        } catch (IOException e) {
+            throw new OWLOntologyStorageException(e);
+        }
+    }
+
+    /**
+     * Loads an ontology saved by {@link #recordChanges(OWLOntology, Path)}: the base snapshot,
+     * then the logged changes. Logging carries on from there.
+     *
+     * @param directory the directory the ontology was logged to
+     * @return the log; {@link ChangeLog#getOntology()} is the loaded ontology
+     * @throws OWLOntologyCreationException if the base or the log can't be read
+     */
+    public ChangeLog openChangeLog(Path directory) throws OWLOntologyCreationException {
+        try {
+            return ChangeLog.open(this, directory, ChangeLog.DEFAULT_COMPACT_THRESHOLD);
+        } catch (IOException e) {
+            throw new OWLOntologyCreationException("could not read change log in " + directory, e);
+        }
+    }
+
+    /**
+     * Starts loading a large RDF/XML or Turtle document into an existing ontology without
+     * buffering the whole document first. The file is memory-mapped and parsed with Rio, and
+     * axioms are committed into the ontology in chunks as they're parsed (listeners aren't
+     * notified, as with {@link #bulkLoader(OWLOntology)}).
+     *
+     * @param file             the document to read
+     * @param format           the RDF syntax of the document, e.g. <code>RDFFormat.TURTLE</code>
+     * @param target           the ontology the axioms go into
+     * @param progressListener called after every chunk and at the end; may be null
+     * @return a handle for following (or waiting for) the load
+     */
+    public StreamingLoad readOntologyStreaming(Path file, RDFFormat format, OWLOntology target,
+                                               Consumer<StreamingLoad> progressListener) {
+        return new StreamingLoad(this, file, format, target, progressListener, BulkLoader.DEFAULT_CHUNK_SIZE).start();
     }
 
     public OWLClass createClass(String iri) {
@@ -61,7 +387,7 @@ public class OntologyHelper {
     }
 
     public OWLClass createClass(IRI iri) {
-        return df.getOWLClass(iri);
+        return cache.getOWLClass(iri);
     }
 
 
@@ -74,7 +400,83 @@ public class OntologyHelper {
     }
 
     private void applyChanges(OWLAxiomChange... axioms) {
-        m.applyChanges(Arrays.asList(axioms));
+        List<OWLAxiomChange> changes = Arrays.asList(axioms);
+        OntologyOperationEvent event = instrumentation.start();
+        m.applyChanges(changes);
+        instrumentation.applied(event, changes);
+    }
+
+    /**
+     * Applies a chunk of changes for a bulk load, either through the manager or (if listeners
+     * shouldn't hear about it) straight to the ontology.
+     */
+    void commit(OWLOntology o, List<? extends OWLOntologyChange> changes, boolean notifyListeners) {
+        OntologyOperationEvent event = instrumentation.start();
+        if (!notifyListeners && o instanceof OWLMutableOntology) {
+            ((OWLMutableOntology) o).applyChanges(changes);
+        } else {
+            m.applyChanges(changes);
+        }
+        instrumentation.applied(event, changes);
+    }
+
+    /**
+     * Creates a loader for bulk-loading axioms into an ontology, using the default chunk size
+     * and without notifying change listeners.
+     *
+     * @param o the ontology to load into
+     * @return a new loader
+     */
+    public BulkLoader bulkLoader(OWLOntology o) {
+        return bulkLoader(o, BulkLoader.DEFAULT_CHUNK_SIZE, false);
+    }
+
+    /**
+     * Creates a loader for bulk-loading axioms into an ontology.
+     *
+     * @param o               the ontology to load into
+     * @param chunkSize       the most changes held (and committed) at once
+     * @param notifyListeners whether chunks go through the manager, so listeners see them
+     * @return a new loader
+     */
+    public BulkLoader bulkLoader(OWLOntology o, int chunkSize, boolean notifyListeners) {
+        return new BulkLoader(this, o, chunkSize, notifyListeners);
+    }
+
+    /**
+     * Loads a stream of axioms into an ontology in chunks.
+     *
+     * @param o      the ontology to load into
+     * @param axioms the axioms; consumed lazily, never collected
+     * @return how many axioms were loaded, and how quickly
+     */
+    public BulkLoadStatistics bulkLoad(OWLOntology o, Stream<? extends OWLAxiom> axioms) {
+        return bulkLoader(o).addAxioms(axioms).finish();
+    }
+
+    /**
+     * Creates a pipeline that parses documents in parallel and commits them into an ontology,
+     * parsing as many documents at once as there are processors.
+     *
+     * @param o the ontology to load into
+     * @return a new pipeline
+     */
+    public IngestionPipeline ingestionPipeline(OWLOntology o) {
+        return ingestionPipeline(o, Runtime.getRuntime().availableProcessors(),
+                IngestionPipeline.DEFAULT_QUEUE_CAPACITY, BulkLoader.DEFAULT_CHUNK_SIZE);
+    }
+
+    /**
+     * Creates a pipeline that parses documents in parallel and commits them into an ontology.
+     *
+     * @param o             the ontology to load into
+     * @param parallelism   the most documents parsed at once
+     * @param queueCapacity the most parsed documents waiting to be committed
+     * @param batchSize     the most axioms committed at once
+     * @return a new pipeline
+     */
+    public IngestionPipeline ingestionPipeline(OWLOntology o, int parallelism, int queueCapacity, int batchSize) {
+        return new IngestionPipeline(this, o, parallelism, queueCapacity, batchSize);
     }
 
     public OWLIndividual createIndividual(String iri) {
@@ -82,7 +484,7 @@ public class OntologyHelper {
     }
 
     private OWLIndividual createIndividual(IRI iri) {
-        return df.getOWLNamedIndividual(iri);
+        return cache.getOWLNamedIndividual(iri);
     }
 
     public OWLAxiomChange associateIndividualWithClass(OWLOntology o,
@@ -96,7 +498,7 @@ public class OntologyHelper {
     }
 
     public OWLObjectProperty createObjectProperty(IRI iri) {
-        return df.getOWLObjectProperty(iri);
+        return cache.getOWLObjectProperty(iri);
     }
 
     /**
@@ -142,7 +544,17 @@ public class OntologyHelper {
     }
 
     public OWLDataProperty createDataProperty(IRI iri) {
-        return df.getOWLDataProperty(iri);
+        return cache.getOWLDataProperty(iri);
+    }
+
+    /**
+     * Creates a store for data property values that keeps them in primitive columns rather than
+     * as axioms; for individuals with many int, long, double or boolean values.
+     *
+     * @return a new, empty store
+     */
+    public DataAssertionStore dataAssertionStore() {
+        return new DataAssertionStore(this);
     }
 
     public OWLAxiomChange addDataToIndividual(OWLOntology o, OWLIndividual individual, OWLDataProperty property, String value) {
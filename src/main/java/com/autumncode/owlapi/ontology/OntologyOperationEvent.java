@@ -0,0 +1,34 @@
+package com.autumncode.owlapi.ontology;
+
+import jdk.jfr.*;
+
+/**
+ * A JFR event for one OntologyHelper operation: a parse, a save, a batch of changes or a
+ * reasoner query. Events are recorded whenever a flight recording has them enabled, whether or
+ * not a meter registry is configured; with no recording running they cost next to nothing.
+ */
+@Name("com.autumncode.owlapi.OntologyOperation")
+@Label("Ontology Operation")
+@Category("OWLAPI")
+@Description("An OntologyHelper read, write, change or reasoner operation")
+@StackTrace(false)
+public class OntologyOperationEvent extends Event {
+    @Label("Operation")
+    String operation;
+
+    @Label("Ontology")
+    String ontology;
+
+    @Label("Kind")
+    @Description("The document format of a read or write, or the reasoner query")
+    String kind;
+
+    @Label("Axioms")
+    @Description("Axioms read or written, or changes applied")
+    int axioms;
+
+    /**
+     * When the operation started, for the meter registry; JFR ignores transient fields.
+     */
+    transient long startNanos;
+}
@@ -0,0 +1,521 @@
+package com.autumncode.owlapi.ontology;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.RemovalCause;
+import com.google.common.cache.RemovalNotification;
+import com.google.common.hash.Hashing;
+import io.micrometer.core.instrument.Meter;
+import org.semanticweb.owlapi.io.IRIDocumentSource;
+import org.semanticweb.owlapi.model.*;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Loads named ontologies into the helper's manager on first access, and unloads the least
+ * recently used ones when the loaded ontologies go over a budget.
+ *
+ * <p>The budget is counted in axioms (each ontology's own, not its imports), as the nearest
+ * cheap stand-in for memory. An ontology is weighed when it's loaded, and weighed again at the
+ * next access to the registry after it changes (through the manager, or through a bulk load that
+ * skips the manager's listeners), which may push other ontologies out, or the changed one itself
+ * if it has outgrown the budget.
+ * Imports are loaded into the same manager, so an import shared by many ontologies is parsed
+ * once. Every loaded ontology holds a reference to everything in its imports closure, and an
+ * import is unloaded when the last ontology holding it is.</p>
+ *
+ * <p>With a spill directory, an ontology that's pushed out by the budget is first written there
+ * as a snapshot (unless an up-to-date one is already there), and it's read back from the
+ * snapshot, changes included, the next time it's needed. {@link #invalidate(String)} discards
+ * the snapshot too, so the next access goes back to the source. Without a spill directory,
+ * changes to an unloaded ontology are lost, and changes to a shared import are lost either
+ * way.</p>
+ *
+ * <pre>
+ * OntologyRegistry registry = oh.createRegistry(1_000_000, spillDirectory);
+ * registry.register("tenant-42", IRI.create(file.toFile()));
+ * OWLOntology o = registry.get("tenant-42");
+ * </pre>
+ *
+ * <p>An ontology returned by {@link #get(String)} can be unloaded by the next access from any
+ * thread. To keep using it, take a {@link Lease} instead: a leased ontology that's pushed out
+ * stays loaded (over the budget) until its last lease is closed, and an access in the meantime
+ * gets the same ontology back. An ontology with more axioms than the whole budget is never
+ * loaded.</p>
+ *
+ * <pre>
+ * try (OntologyRegistry.Lease lease = registry.lease("tenant-42")) {
+ *     reason(lease.getOntology());
+ * }
+ * </pre>
+ *
+ * <p>The ontologies live in the helper's manager, so everything else in the helper works on
+ * them; they're only unloaded through the registry. Two registered documents with the same
+ * ontology IRI can't be loaded at the same time.</p>
+ */
+public class OntologyRegistry implements AutoCloseable {
+    private final OntologyHelper helper;
+    private final Path spillDirectory;
+    private final Cache<String, OWLOntology> loaded;
+    private final Map<String, IRI> sources = new ConcurrentHashMap<>();
+    private final long maxAxioms;
+    private final Map<OWLOntology, Integer> holds = new HashMap<>();
+    // pushed out of the cache but still loaded: leased, or their spill failed
+    private final Map<String, OWLOntology> retained = new HashMap<>();
+    private final Map<OWLOntology, Integer> leases = new IdentityHashMap<>();
+    private final Set<OWLOntology> modified = ConcurrentHashMap.newKeySet();
+    // changed since they were last weighed
+    private final Set<OWLOntology> resized = ConcurrentHashMap.newKeySet();
+    private final OWLOntologyChangeListener listener = this::changed;
+    private final Consumer<OWLOntology> reloadListener = this::reloaded;
+    private final Object lock = new Object();
+    private final List<Meter> meters;
+    private OWLOntologyStorageException spillFailure;
+    private boolean closed;
+
+    private final AtomicLong sourceLoads = new AtomicLong();
+    private final AtomicLong sourceLoadNanos = new AtomicLong();
+    private final AtomicLong spillLoads = new AtomicLong();
+    private final AtomicLong spillLoadNanos = new AtomicLong();
+    private final AtomicLong spills = new AtomicLong();
+
+    OntologyRegistry(OntologyHelper helper, long maxAxioms, Path spillDirectory) {
+        this.helper = helper;
+        this.maxAxioms = maxAxioms;
+        this.spillDirectory = spillDirectory;
+        this.loaded = CacheBuilder.newBuilder()
+                .maximumWeight(maxAxioms)
+                // one segment, so the budget is enforced as a whole rather than per segment
+                .concurrencyLevel(1)
+                .weigher((String name, OWLOntology o) -> Math.max(1, o.getAxiomCount()))
+                .removalListener(this::removed)
+                .recordStats()
+                .build();
+        helper.m.addOntologyChangeListener(listener);
+        helper.reloadListeners.add(reloadListener);
+        this.meters = helper.instrumentation.monitor(this);
+    }
+
+    /**
+     * Makes an ontology available under a name. Nothing is loaded until it's asked for.
+     *
+     * @param name     the name to look it up by
+     * @param document where to load it from, such as a file IRI
+     */
+    public void register(String name, IRI document) {
+        sources.put(name, document);
+    }
+
+    public Set<String> getNames() {
+        return Collections.unmodifiableSet(sources.keySet());
+    }
+
+    /**
+     * Returns a registered ontology, loading it (from its spilled snapshot if there is one, from
+     * its source if not) if it isn't loaded. The next access to the registry, from any thread,
+     * may unload it again; use {@link #lease(String)} to hold on to it.
+     *
+     * @param name the name it was registered under
+     * @return the ontology
+     * @throws OWLOntologyCreationException if nothing is registered under the name, it can't be
+     *                                      loaded, it has more axioms than the budget, or an
+     *                                      ontology pushed out to make room for it couldn't be
+     *                                      spilled (that one stays loaded; it's spilled again
+     *                                      when it's next evicted)
+     */
+    public OWLOntology get(String name) throws OWLOntologyCreationException {
+        IRI document = sources.get(name);
+        if (document == null) {
+            throw new OWLOntologyCreationException("no ontology registered as " + name);
+        }
+        reweigh();
+        OWLOntology o;
+        try {
+            o = loaded.get(name, () -> load(name, document));
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof OWLOntologyCreationException) {
+                throw (OWLOntologyCreationException) e.getCause();
+            }
+            throw new OWLOntologyCreationException("could not load " + name, e.getCause());
+        }
+        OWLOntologyStorageException failure;
+        synchronized (lock) {
+            failure = spillFailure;
+            spillFailure = null;
+        }
+        if (failure != null) {
+            throw new OWLOntologyCreationException("loaded " + name
+                    + ", but an ontology pushed out to make room couldn't be spilled", failure);
+        }
+        return o;
+    }
+
+    /**
+     * Returns a registered ontology as {@link #get(String)} does, and keeps it loaded until the
+     * lease is closed.
+     *
+     * @param name the name it was registered under
+     * @return a lease on the ontology; close it when done with the ontology
+     * @throws OWLOntologyCreationException as {@link #get(String)} does
+     */
+    public Lease lease(String name) throws OWLOntologyCreationException {
+        while (true) {
+            OWLOntology o = get(name);
+            synchronized (lock) {
+                // it may have been pushed out again since get() returned it
+                if (loaded.asMap().get(name) == o || retained.get(name) == o) {
+                    leases.merge(o, 1, Integer::sum);
+                    return new Lease(name, o);
+                }
+            }
+        }
+    }
+
+    /**
+     * @param name a registered name
+     * @return the ontology if it's loaded, or null; doesn't count as an access
+     */
+    public OWLOntology getIfLoaded(String name) {
+        return loaded.asMap().get(name);
+    }
+
+    /**
+     * Unloads an ontology now, spilling it first if there's a spill directory.
+     *
+     * @param name a registered name
+     * @throws OWLOntologyStorageException if the ontology can't be spilled; it stays loaded
+     */
+    public void evict(String name) throws OWLOntologyStorageException {
+        reweigh();
+        OWLOntology o = loaded.asMap().get(name);
+        if (o != null) {
+            if (spillDirectory != null) {
+                spill(name, o);
+            }
+            loaded.invalidate(name);
+        } else {
+            OWLOntology kept;
+            synchronized (lock) {
+                kept = retained.get(name);
+            }
+            if (kept != null) {
+                unloadRetained(name, kept);
+            }
+        }
+    }
+
+    /**
+     * Unloads an ontology and discards its spilled snapshot, so the next access reloads it from
+     * its source.
+     *
+     * @param name a registered name
+     * @throws IllegalStateException if the ontology is leased
+     */
+    public void invalidate(String name) {
+        synchronized (lock) {
+            OWLOntology o = loaded.asMap().get(name);
+            if (o == null) {
+                o = retained.get(name);
+            }
+            if (o != null && leases.containsKey(o)) {
+                throw new IllegalStateException(name + " is leased");
+            }
+            loaded.invalidate(name);
+            OWLOntology kept = retained.remove(name);
+            if (kept != null) {
+                release(kept);
+            }
+        }
+        if (spillDirectory != null) {
+            try {
+                Files.deleteIfExists(spillFile(name));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    /**
+     * @return the number of registered ontologies that are loaded, not counting imports
+     */
+    public long size() {
+        return loaded.size();
+    }
+
+    public RegistryStatistics getStatistics() {
+        int resident;
+        synchronized (lock) {
+            resident = holds.size();
+        }
+        return new RegistryStatistics(loaded.stats(), resident,
+                sourceLoads.get(), sourceLoadNanos.get(), spillLoads.get(), spillLoadNanos.get(), spills.get());
+    }
+
+    /**
+     * Unloads everything the registry loaded, spilling as it would on eviction, and stops
+     * following changes. Leased ontologies are unloaded (and always spilled, since changes are no
+     * longer followed) as their leases are closed.
+     */
+    @Override
+    public void close() {
+        Set<String> names = new HashSet<>(loaded.asMap().keySet());
+        synchronized (lock) {
+            names.addAll(retained.keySet());
+        }
+        for (String name : names) {
+            try {
+                evict(name);
+            } catch (OWLOntologyStorageException e) {
+                throw new IllegalStateException("could not spill " + name, e);
+            }
+        }
+        synchronized (lock) {
+            closed = true;
+        }
+        helper.m.removeOntologyChangeListener(listener);
+        helper.reloadListeners.remove(reloadListener);
+        helper.instrumentation.remove(meters);
+    }
+
+    private OWLOntology load(String name, IRI document) throws OWLOntologyCreationException {
+        synchronized (lock) {
+            OWLOntology kept = retained.remove(name);
+            if (kept != null) {
+                if (kept.getAxiomCount() > maxAxioms) {
+                    retained.put(name, kept);
+                    throw oversized(name, kept);
+                }
+                return kept;
+            }
+            long start = System.nanoTime();
+            OWLOntology o;
+            Path spilled = spillDirectory == null ? null : spillFile(name);
+            if (spilled != null && Files.exists(spilled)) {
+                o = readSpill(spilled);
+                spillLoads.incrementAndGet();
+                spillLoadNanos.addAndGet(System.nanoTime() - start);
+            } else {
+                o = helper.readOntology(new IRIDocumentSource(document));
+                sourceLoads.incrementAndGet();
+                sourceLoadNanos.addAndGet(System.nanoTime() - start);
+            }
+            // the cache would evict it as soon as it went in
+            if (o.getAxiomCount() > maxAxioms) {
+                for (OWLOntology held : o.getImportsClosure()) {
+                    if (!holds.containsKey(held)) {
+                        helper.removeOntology(held);
+                    }
+                }
+                throw oversized(name, o);
+            }
+            for (OWLOntology held : o.getImportsClosure()) {
+                holds.merge(held, 1, Integer::sum);
+            }
+            modified.remove(o);
+            resized.remove(o);
+            return o;
+        }
+    }
+
+    private OWLOntologyCreationException oversized(String name, OWLOntology o) {
+        return new OWLOntologyCreationException(name + " has " + o.getAxiomCount()
+                + " axioms, more than the registry's budget of " + maxAxioms);
+    }
+
+    private OWLOntology readSpill(Path spilled) throws OWLOntologyCreationException {
+        OWLOntology o;
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(spilled))) {
+            o = helper.readSnapshot(in);
+        } catch (IOException e) {
+            throw new OWLOntologyCreationException("could not read " + spilled, e);
+        }
+        // a snapshot only records the imports declarations; the imports themselves are shared
+        for (OWLImportsDeclaration declaration : o.getImportsDeclarations()) {
+            if (helper.m.getImportedOntology(declaration) == null) {
+                helper.m.makeLoadImportRequest(declaration);
+            }
+        }
+        return o;
+    }
+
+    private void removed(RemovalNotification<String, OWLOntology> notification) {
+        if (notification.getCause() == RemovalCause.REPLACED) {
+            // reweigh() putting it back under its new weight
+            return;
+        }
+        String name = notification.getKey();
+        OWLOntology o = notification.getValue();
+        synchronized (lock) {
+            if (leases.containsKey(o)) {
+                retained.put(name, o);
+                return;
+            }
+            if (spillDirectory != null && notification.wasEvicted()) {
+                try {
+                    spill(name, o);
+                } catch (OWLOntologyStorageException e) {
+                    // keep it rather than lose its changes; the next get() reports it
+                    retained.put(name, o);
+                    if (spillFailure == null) {
+                        spillFailure = e;
+                    } else {
+                        spillFailure.addSuppressed(e);
+                    }
+                    return;
+                }
+            }
+            release(o);
+        }
+    }
+
+    private void unloadRetained(String name, OWLOntology o) throws OWLOntologyStorageException {
+        synchronized (lock) {
+            if (retained.get(name) != o || leases.containsKey(o)) {
+                return;
+            }
+            if (spillDirectory != null) {
+                // once closed, changes aren't followed, so the old snapshot can't be trusted
+                spill(name, o, closed);
+            }
+            retained.remove(name);
+            release(o);
+        }
+    }
+
+    private void release(OWLOntology o) {
+        synchronized (lock) {
+            for (OWLOntology held : o.getImportsClosure()) {
+                if (holds.merge(held, -1, Integer::sum) == 0) {
+                    holds.remove(held);
+                    modified.remove(held);
+                    resized.remove(held);
+                    helper.removeOntology(held);
+                }
+            }
+        }
+    }
+
+    private void spill(String name, OWLOntology o) throws OWLOntologyStorageException {
+        spill(name, o, false);
+    }
+
+    private void spill(String name, OWLOntology o, boolean force) throws OWLOntologyStorageException {
+        Path spilled = spillFile(name);
+        if (Files.exists(spilled) && !modified.contains(o) && !force) {
+            return;
+        }
+        try {
+            Files.createDirectories(spillDirectory);
+            Path temporary = spilled.resolveSibling(spilled.getFileName() + ".tmp");
+            try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(temporary))) {
+                helper.writeSnapshot(o, out);
+            }
+            Files.move(temporary, spilled, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            modified.remove(o);
+            spills.incrementAndGet();
+        } catch (IOException e) {
+            throw new OWLOntologyStorageException(e);
+        }
+    }
+
+    private Path spillFile(String name) {
+        return spillDirectory.resolve(Hashing.sha256().hashString(name, StandardCharsets.UTF_8) + ".owls");
+    }
+
+    private void changed(List<? extends OWLOntologyChange> changes) {
+        OWLOntology last = null;
+        for (OWLOntologyChange change : changes) {
+            if (change.getOntology() != last) {
+                last = change.getOntology();
+                reloaded(last);
+            }
+        }
+    }
+
+    /**
+     * Marks an ontology as changed, whether or not the manager broadcast the changes.
+     */
+    private void reloaded(OWLOntology o) {
+        synchronized (lock) {
+            if (holds.containsKey(o)) {
+                modified.add(o);
+                resized.add(o);
+            }
+        }
+    }
+
+    /**
+     * Puts changed ontologies back into the cache, so they're charged their current axiom count.
+     * Done on the next access rather than from the change listener, since it may evict, and
+     * evicting unloads ontologies.
+     */
+    private void reweigh() {
+        if (resized.isEmpty()) {
+            return;
+        }
+        Set<OWLOntology> changed = new HashSet<>();
+        for (Iterator<OWLOntology> i = resized.iterator(); i.hasNext(); ) {
+            changed.add(i.next());
+            i.remove();
+        }
+        for (Map.Entry<String, OWLOntology> entry : loaded.asMap().entrySet()) {
+            if (changed.contains(entry.getValue())) {
+                loaded.asMap().replace(entry.getKey(), entry.getValue(), entry.getValue());
+            }
+        }
+    }
+
+    /**
+     * Keeps a registered ontology loaded until it's closed.
+     */
+    public final class Lease implements AutoCloseable {
+        private final String name;
+        private final OWLOntology ontology;
+        private boolean open = true;
+
+        private Lease(String name, OWLOntology ontology) {
+            this.name = name;
+            this.ontology = ontology;
+        }
+
+        public OWLOntology getOntology() {
+            return ontology;
+        }
+
+        /**
+         * Gives the ontology back. If it was pushed out while leased and this was its last lease,
+         * it's spilled and unloaded now.
+         *
+         * @throws OWLOntologyStorageException if it can't be spilled; it stays loaded, and is
+         *                                     spilled again when it's next evicted
+         */
+        @Override
+        public void close() throws OWLOntologyStorageException {
+            synchronized (lock) {
+                if (!open) {
+                    return;
+                }
+                open = false;
+                if (leases.merge(ontology, -1, Integer::sum) > 0) {
+                    return;
+                }
+                leases.remove(ontology);
+            }
+            unloadRetained(name, ontology);
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package com.autumncode.owlapi.ontology;
+
+import com.google.common.collect.ImmutableSet;
+import org.semanticweb.owlapi.model.AxiomType;
+import org.semanticweb.owlapi.model.OWLAxiom;
+import org.semanticweb.owlapi.model.OWLOntology;
+
+import java.util.Set;
+import java.util.stream.Stream;
+
+/**
+ * An immutable view of an ontology's axioms as of one point in its change history. A snapshot
+ * never changes, and can be read from any number of threads while writers carry on with the
+ * ontology itself.
+ *
+ * @see ConcurrentOntologyHelper#snapshot(OWLOntology)
+ */
+public class OntologySnapshot {
+    private final OWLOntology ontology;
+    private final long version;
+    private final ImmutableSet<OWLAxiom> axioms;
+
+    OntologySnapshot(OWLOntology ontology, long version, ImmutableSet<OWLAxiom> axioms) {
+        this.ontology = ontology;
+        this.version = version;
+        this.axioms = axioms;
+    }
+
+    public OWLOntology getOntology() {
+        return ontology;
+    }
+
+    /**
+     * @return the number of write batches applied to the ontology when this snapshot was taken;
+     * later snapshots of the same ontology have higher versions
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    public Set<OWLAxiom> getAxioms() {
+        return axioms;
+    }
+
+    public int getAxiomCount() {
+        return axioms.size();
+    }
+
+    public boolean containsAxiom(OWLAxiom axiom) {
+        return axioms.contains(axiom);
+    }
+
+    @SuppressWarnings("unchecked")
+    public <T extends OWLAxiom> Stream<T> axioms(AxiomType<T> type) {
+        return axioms.stream().filter(ax -> ax.getAxiomType() == type).map(ax -> (T) ax);
+    }
+}
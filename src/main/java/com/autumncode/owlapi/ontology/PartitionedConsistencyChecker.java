@@ -0,0 +1,244 @@
+package com.autumncode.owlapi.ontology;
+
+import org.semanticweb.owlapi.apibinding.OWLManager;
+import org.semanticweb.owlapi.model.*;
+import org.semanticweb.owlapi.model.parameters.Imports;
+import org.semanticweb.owlapi.reasoner.OWLReasoner;
+import org.semanticweb.owlapi.reasoner.OWLReasonerFactory;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Checks an ontology's consistency by splitting its ABox into independent pieces and reasoning
+ * over each piece, with the shared TBox, in parallel.
+ *
+ * <p>Individuals are joined (union-find, over int ids) whenever an assertion mentions more than
+ * one of them: property assertions, same/different individuals, class assertions with
+ * nominals. Unless the TBox has one of the constructs that relate individuals that share no
+ * assertion, no inference can cross from one connected component to another, so the ontology
+ * is consistent exactly when the TBox is and every component is with it. Components are packed into partitions of about <code>partitionSize</code>
+ * assertions, so millions of tiny components don't mean millions of reasoners; a partition
+ * that turns out inconsistent is re-checked one component at a time to find the culprits.</p>
+ *
+ * <p>Those constructs are nominals (the TBox mentions individuals), keys (HasKey can make two
+ * individuals with equal key values the same individual), and the universal properties
+ * (<code>owl:topObjectProperty</code> relates every pair of individuals, and the bottom
+ * properties are usually reached through them). With any of them the argument doesn't hold,
+ * and the whole ontology is checked as one partition.</p>
+ */
+class PartitionedConsistencyChecker {
+    static final int DEFAULT_PARTITION_SIZE = 10_000;
+
+    private final OWLOntology ontology;
+    private final OWLReasonerFactory factory;
+    private final int parallelism;
+    private final int partitionSize;
+
+    private final Map<OWLIndividual, Integer> ids = new HashMap<>();
+    private final List<OWLIndividual> individuals = new ArrayList<>();
+    private int[] parent = new int[1024];
+
+    PartitionedConsistencyChecker(OWLOntology ontology, OWLReasonerFactory factory, int parallelism, int partitionSize) {
+        this.ontology = ontology;
+        this.factory = factory;
+        this.parallelism = parallelism;
+        this.partitionSize = partitionSize;
+    }
+
+    ConsistencyReport check() {
+        long start = System.nanoTime();
+        // everything that isn't an assertion is shared: the TBox, the RBox, and the rest (keys,
+        // datatype definitions)
+        List<OWLAxiom> tbox = new ArrayList<>();
+        for (OWLAxiom axiom : ontology.getAxioms(Imports.INCLUDED)) {
+            if (axiom.isLogicalAxiom() && !AxiomType.ABoxAxiomTypes.contains(axiom.getAxiomType())) {
+                tbox.add(axiom);
+            }
+        }
+        boolean linked = false;
+        for (OWLAxiom axiom : tbox) {
+            if (linksComponents(axiom)) {
+                linked = true;
+                break;
+            }
+        }
+
+        Set<OWLAxiom> abox = ontology.getABoxAxioms(Imports.INCLUDED);
+        Map<Integer, List<OWLAxiom>> components = new LinkedHashMap<>();
+        if (linked) {
+            components.put(0, new ArrayList<>(abox));
+            for (OWLAxiom axiom : abox) {
+                individuals(axiom).forEach(this::id);
+            }
+        } else {
+            for (OWLAxiom axiom : abox) {
+                List<OWLIndividual> mentioned = individuals(axiom);
+                for (int i = 1; i < mentioned.size(); i++) {
+                    union(id(mentioned.get(0)), id(mentioned.get(i)));
+                }
+            }
+            for (OWLAxiom axiom : abox) {
+                List<OWLIndividual> mentioned = individuals(axiom);
+                int root = mentioned.isEmpty() ? -1 : find(id(mentioned.get(0)));
+                components.computeIfAbsent(root, r -> new ArrayList<>()).add(axiom);
+            }
+        }
+
+        List<List<List<OWLAxiom>>> partitions = new ArrayList<>();
+        List<List<OWLAxiom>> current = new ArrayList<>();
+        int currentSize = 0;
+        for (List<OWLAxiom> component : components.values()) {
+            if (currentSize > 0 && currentSize + component.size() > partitionSize) {
+                partitions.add(current);
+                current = new ArrayList<>();
+                currentSize = 0;
+            }
+            current.add(component);
+            currentSize += component.size();
+        }
+        if (!current.isEmpty()) {
+            partitions.add(current);
+        }
+
+        List<ConsistencyReport.Inconsistency> inconsistencies = new ArrayList<>();
+        if (!isConsistent(tbox, Collections.emptyList())) {
+            inconsistencies.add(new ConsistencyReport.Inconsistency(Collections.emptySet(), 0));
+        } else {
+            inconsistencies.addAll(checkPartitions(tbox, partitions));
+        }
+        return new ConsistencyReport(components.size(), partitions.size(), inconsistencies, System.nanoTime() - start);
+    }
+
+    private List<ConsistencyReport.Inconsistency> checkPartitions(List<OWLAxiom> tbox, List<List<List<OWLAxiom>>> partitions) {
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            List<Future<List<ConsistencyReport.Inconsistency>>> results = new ArrayList<>();
+            for (List<List<OWLAxiom>> partition : partitions) {
+                results.add(pool.submit(() -> checkPartition(tbox, partition)));
+            }
+            List<ConsistencyReport.Inconsistency> inconsistencies = new ArrayList<>();
+            for (Future<List<ConsistencyReport.Inconsistency>> result : results) {
+                inconsistencies.addAll(result.get());
+            }
+            return inconsistencies;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("interrupted while checking consistency", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("could not check consistency", e.getCause());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private List<ConsistencyReport.Inconsistency> checkPartition(List<OWLAxiom> tbox, List<List<OWLAxiom>> partition) {
+        List<OWLAxiom> all = new ArrayList<>();
+        partition.forEach(all::addAll);
+        if (isConsistent(tbox, all)) {
+            return Collections.emptyList();
+        }
+        if (partition.size() == 1) {
+            return Collections.singletonList(inconsistency(all));
+        }
+        List<ConsistencyReport.Inconsistency> found = new ArrayList<>();
+        for (List<OWLAxiom> component : partition) {
+            if (!isConsistent(tbox, component)) {
+                found.add(inconsistency(component));
+            }
+        }
+        return found;
+    }
+
+    private ConsistencyReport.Inconsistency inconsistency(List<OWLAxiom> component) {
+        Set<OWLIndividual> members = new LinkedHashSet<>();
+        for (OWLAxiom axiom : component) {
+            members.addAll(individuals(axiom));
+        }
+        return new ConsistencyReport.Inconsistency(members, component.size());
+    }
+
+    /**
+     * Loads the TBox and some assertions into a scratch ontology of their own and asks a fresh
+     * reasoner whether they're consistent.
+     */
+    private boolean isConsistent(List<OWLAxiom> tbox, List<OWLAxiom> assertions) {
+        OWLOntologyManager scratch = OWLManager.createOWLOntologyManager();
+        try {
+            OWLOntology partition = scratch.createOntology();
+            List<AddAxiom> changes = new ArrayList<>(tbox.size() + assertions.size());
+            for (OWLAxiom axiom : tbox) {
+                changes.add(new AddAxiom(partition, axiom));
+            }
+            for (OWLAxiom axiom : assertions) {
+                changes.add(new AddAxiom(partition, axiom));
+            }
+            scratch.applyChanges(changes);
+            OWLReasoner reasoner = factory.createNonBufferingReasoner(partition);
+            try {
+                return reasoner.isConsistent();
+            } finally {
+                reasoner.dispose();
+            }
+        } catch (OWLOntologyCreationException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * @return whether a shared axiom can relate individuals that share no assertion
+     */
+    private static boolean linksComponents(OWLAxiom axiom) {
+        if (axiom.isOfType(AxiomType.HAS_KEY)
+                || !axiom.getIndividualsInSignature().isEmpty() || !axiom.getAnonymousIndividuals().isEmpty()) {
+            return true;
+        }
+        for (OWLObjectProperty property : axiom.getObjectPropertiesInSignature()) {
+            if (property.isOWLTopObjectProperty() || property.isOWLBottomObjectProperty()) {
+                return true;
+            }
+        }
+        for (OWLDataProperty property : axiom.getDataPropertiesInSignature()) {
+            if (property.isOWLTopDataProperty() || property.isOWLBottomDataProperty()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static List<OWLIndividual> individuals(OWLAxiom axiom) {
+        List<OWLIndividual> mentioned = new ArrayList<>(axiom.getIndividualsInSignature());
+        mentioned.addAll(axiom.getAnonymousIndividuals());
+        return mentioned;
+    }
+
+    private int id(OWLIndividual individual) {
+        Integer id = ids.get(individual);
+        if (id == null) {
+            id = individuals.size();
+            ids.put(individual, id);
+            individuals.add(individual);
+            if (id == parent.length) {
+                parent = Arrays.copyOf(parent, parent.length * 2);
+            }
+            parent[id] = id;
+        }
+        return id;
+    }
+
+    private int find(int id) {
+        while (parent[id] != id) {
+            parent[id] = parent[parent[id]];
+            id = parent[id];
+        }
+        return id;
+    }
+
+    private void union(int a, int b) {
+        int rootA = find(a);
+        int rootB = find(b);
+        if (rootA != rootB) {
+            parent[Math.max(rootA, rootB)] = Math.min(rootA, rootB);
+        }
+    }
+}
@@ -0,0 +1,131 @@
+package com.autumncode.owlapi.ontology;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.google.common.cache.RemovalListener;
+import org.semanticweb.owlapi.model.OWLOntology;
+import org.semanticweb.owlapi.model.OWLOntologyChange;
+import org.semanticweb.owlapi.model.OWLOntologyChangeListener;
+import org.semanticweb.owlapi.model.OWLOntologyManager;
+import org.semanticweb.owlapi.reasoner.OWLReasoner;
+import org.semanticweb.owlapi.reasoner.OWLReasonerFactory;
+import uk.ac.manchester.cs.jfact.JFactFactory;
+
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps one reasoner per ontology alive between queries, instead of creating (and classifying
+ * with) a new one after every change.
+ *
+ * <p>Sessions are created on first use, and disposed once they haven't been used for the idle
+ * timeout, when they're invalidated (which the helper does when it removes the ontology), or
+ * when the pool is shut down. A session holds its ontology, so it has to be invalidated to let
+ * go of a removed one; idle sessions are only expired as the pool is used. The pool listens to the
+ * manager for changes and marks the affected session, which flushes its reasoner before the
+ * next query.</p>
+ *
+ * <pre>
+ * oh.applyChange(oh.associateIndividualWithClass(o, female, jonathan));
+ * assertFalse(oh.getReasonerPool().session(o).isConsistent());
+ * </pre>
+ */
+public class ReasonerPool {
+    public static final long DEFAULT_IDLE_TIMEOUT_SECONDS = 300;
+
+    private final OWLOntologyManager manager;
+    private final OWLReasonerFactory factory;
+    private final boolean buffering;
+    private final Cache<OWLOntology, ReasonerSession> sessions;
+    private final OWLOntologyChangeListener listener = this::changed;
+    volatile Instrumentation instrumentation = Instrumentation.DISABLED;
+
+    ReasonerPool(OWLOntologyManager manager) {
+        this(manager, new JFactFactory(), true, DEFAULT_IDLE_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+    }
+
+    /**
+     * @param manager     the manager whose ontologies the pool reasons over
+     * @param factory     creates the reasoners
+     * @param buffering   whether reasoners buffer changes until they're queried, or take each
+     *                    change into account as it's applied
+     * @param idleTimeout how long an unused session is kept
+     * @param unit        the unit of the idle timeout
+     */
+    public ReasonerPool(OWLOntologyManager manager, OWLReasonerFactory factory, boolean buffering,
+                        long idleTimeout, TimeUnit unit) {
+        this.manager = manager;
+        this.factory = factory;
+        this.buffering = buffering;
+        this.sessions = CacheBuilder.newBuilder()
+                .expireAfterAccess(idleTimeout, unit)
+                .removalListener((RemovalListener<OWLOntology, ReasonerSession>) n -> n.getValue().dispose())
+                .recordStats()
+                .build();
+        manager.addOntologyChangeListener(listener);
+    }
+
+    /**
+     * Returns the session for an ontology, creating its reasoner if there isn't one.
+     *
+     * @param o the ontology to reason over
+     * @return the session
+     */
+    public ReasonerSession session(OWLOntology o) {
+        sessions.cleanUp();
+        try {
+            return sessions.get(o, () -> new ReasonerSession(this, o, createReasoner(o)));
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("could not create a reasoner for " + o.getOntologyID(), e.getCause());
+        }
+    }
+
+    private OWLReasoner createReasoner(OWLOntology o) {
+        return buffering ? factory.createReasoner(o) : factory.createNonBufferingReasoner(o);
+    }
+
+    /**
+     * Disposes the session for an ontology, if there is one. Needed after changes the manager
+     * didn't broadcast, such as a bulk load.
+     *
+     * @param o the ontology
+     */
+    public void invalidate(OWLOntology o) {
+        sessions.invalidate(o);
+    }
+
+    public void invalidateAll() {
+        sessions.invalidateAll();
+    }
+
+    /**
+     * Disposes every session and stops listening to the manager.
+     */
+    public void shutdown() {
+        manager.removeOntologyChangeListener(listener);
+        sessions.invalidateAll();
+    }
+
+    public long size() {
+        return sessions.size();
+    }
+
+    public CacheStats stats() {
+        return sessions.stats();
+    }
+
+    private void changed(List<? extends OWLOntologyChange> changes) {
+        OWLOntology last = null;
+        for (OWLOntologyChange change : changes) {
+            if (change.getOntology() != last) {
+                last = change.getOntology();
+                ReasonerSession session = sessions.asMap().get(last);
+                if (session != null) {
+                    session.changed();
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package com.autumncode.owlapi.ontology;
+
+import org.semanticweb.owlapi.model.OWLClassExpression;
+import org.semanticweb.owlapi.model.OWLNamedIndividual;
+import org.semanticweb.owlapi.model.OWLOntology;
+import org.semanticweb.owlapi.reasoner.BufferingMode;
+import org.semanticweb.owlapi.reasoner.NodeSet;
+import org.semanticweb.owlapi.reasoner.OWLReasoner;
+
+/**
+ * A long-lived reasoner for one ontology, handed out by a {@link ReasonerPool}.
+ *
+ * <p>The reasoner listens to the ontology's manager itself. A buffering reasoner queues the
+ * changes and only takes them into account when it's flushed; the session keeps track of
+ * whether anything has changed since the last query and flushes before the next one, so callers
+ * never see a stale answer and never pay for a flush that isn't needed.</p>
+ */
+public class ReasonerSession {
+    private final ReasonerPool pool;
+    private final OWLOntology ontology;
+    private final OWLReasoner reasoner;
+    private volatile boolean pending;
+    private volatile boolean disposed;
+
+    ReasonerSession(ReasonerPool pool, OWLOntology ontology, OWLReasoner reasoner) {
+        this.pool = pool;
+        this.ontology = ontology;
+        this.reasoner = reasoner;
+    }
+
+    public OWLOntology getOntology() {
+        return ontology;
+    }
+
+    /**
+     * Returns the reasoner, flushed if there are changes it hasn't seen yet. The reasoner is
+     * owned by the pool: don't dispose it.
+     *
+     * @return the up-to-date reasoner
+     */
+    public synchronized OWLReasoner getReasoner() {
+        if (disposed) {
+            throw new IllegalStateException("reasoner session for " + ontology.getOntologyID() + " has been disposed");
+        }
+        if (pending) {
+            pending = false;
+            if (reasoner.getBufferingMode() == BufferingMode.BUFFERING) {
+                OntologyOperationEvent event = pool.instrumentation.start();
+                reasoner.flush();
+                pool.instrumentation.stop(event, Instrumentation.Operation.REASON, ontology, "flush", 0);
+            }
+        }
+        return reasoner;
+    }
+
+    public boolean isConsistent() {
+        OWLReasoner current = getReasoner();
+        OntologyOperationEvent event = pool.instrumentation.start();
+        boolean consistent = current.isConsistent();
+        pool.instrumentation.stop(event, Instrumentation.Operation.REASON, ontology, "isConsistent", 0);
+        return consistent;
+    }
+
+    public NodeSet<OWLNamedIndividual> getInstances(OWLClassExpression ce, boolean direct) {
+        OWLReasoner current = getReasoner();
+        OntologyOperationEvent event = pool.instrumentation.start();
+        NodeSet<OWLNamedIndividual> instances = current.getInstances(ce, direct);
+        pool.instrumentation.stop(event, Instrumentation.Operation.REASON, ontology, "getInstances", 0);
+        return instances;
+    }
+
+    public boolean isDisposed() {
+        return disposed;
+    }
+
+    void changed() {
+        pending = true;
+    }
+
+    synchronized void dispose() {
+        if (!disposed) {
+            disposed = true;
+            reasoner.dispose();
+        }
+    }
+}
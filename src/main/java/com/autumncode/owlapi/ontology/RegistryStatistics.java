@@ -0,0 +1,97 @@
+package com.autumncode.owlapi.ontology;
+
+import com.google.common.cache.CacheStats;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * What an {@link OntologyRegistry} has done so far: how often a requested ontology was already
+ * loaded, how many loads came from sources and how many from spilled snapshots (and how long
+ * they took), and how many ontologies were evicted and spilled.
+ */
+public class RegistryStatistics {
+    private final CacheStats cache;
+    private final int resident;
+    private final long sourceLoads;
+    private final long sourceLoadNanos;
+    private final long spillLoads;
+    private final long spillLoadNanos;
+    private final long spills;
+
+    RegistryStatistics(CacheStats cache, int resident, long sourceLoads, long sourceLoadNanos,
+                       long spillLoads, long spillLoadNanos, long spills) {
+        this.cache = cache;
+        this.resident = resident;
+        this.sourceLoads = sourceLoads;
+        this.sourceLoadNanos = sourceLoadNanos;
+        this.spillLoads = spillLoads;
+        this.spillLoadNanos = spillLoadNanos;
+        this.spills = spills;
+    }
+
+    public long getHits() {
+        return cache.hitCount();
+    }
+
+    public long getMisses() {
+        return cache.missCount();
+    }
+
+    public double getHitRate() {
+        return cache.hitRate();
+    }
+
+    /**
+     * @return the number of ontologies unloaded to stay within the budget
+     */
+    public long getEvictions() {
+        return cache.evictionCount();
+    }
+
+    /**
+     * @return the number of ontologies in the manager because of the registry, imports included
+     */
+    public int getResident() {
+        return resident;
+    }
+
+    public long getSourceLoads() {
+        return sourceLoads;
+    }
+
+    public long getSpillLoads() {
+        return spillLoads;
+    }
+
+    public long getSpills() {
+        return spills;
+    }
+
+    /**
+     * @param unit the unit to return
+     * @return the mean time to load an ontology from its source, imports included
+     */
+    public double getAverageSourceLoadTime(TimeUnit unit) {
+        return average(sourceLoadNanos, sourceLoads, unit);
+    }
+
+    /**
+     * @param unit the unit to return
+     * @return the mean time to load an ontology from its spilled snapshot
+     */
+    public double getAverageSpillLoadTime(TimeUnit unit) {
+        return average(spillLoadNanos, spillLoads, unit);
+    }
+
+    private static double average(long nanos, long count, TimeUnit unit) {
+        return count == 0 ? 0 : (double) nanos / count / unit.toNanos(1);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%.1f%% hits, %d resident, %d evictions; %d source loads (%.1f ms), %d spill loads (%.1f ms), %d spills",
+                getHitRate() * 100, resident, getEvictions(),
+                sourceLoads, getAverageSourceLoadTime(TimeUnit.MILLISECONDS),
+                spillLoads, getAverageSpillLoadTime(TimeUnit.MILLISECONDS), spills);
+    }
+}
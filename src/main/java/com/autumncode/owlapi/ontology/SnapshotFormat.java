@@ -0,0 +1,62 @@
+package com.autumncode.owlapi.ontology;
+
+/**
+ * Constants for the binary snapshot format written by {@link SnapshotWriter}.
+ *
+ * <p>A snapshot is a magic number and a format version, followed by length-prefixed records.
+ * Each record is a one-byte tag, a varint payload length and the payload. IRIs are never
+ * written inline: a NAMESPACE record interns a namespace, an IRI_DEFINITION record interns a namespace id
+ * plus the remaining characters, and everything else refers to IRIs by their (varint) id, in
+ * the order they were defined. Entities are IRI ids whose type is implied by the record.</p>
+ *
+ * <p>Only the axiom shapes OntologyHelper itself builds have records of their own. Anything
+ * else (and any axiom with annotations) goes into a single RESIDUAL record near the end, which
+ * holds those axioms and the ontology annotations as an OWL functional syntax document. Readers
+ * skip records with tags they don't know, so new record types can be added without breaking
+ * old snapshots; a new version number is only needed when an existing record changes.</p>
+ */
+final class SnapshotFormat {
+    static final int MAGIC = 0x4f574c53; // "OWLS"
+    static final int VERSION = 1;
+
+    /**
+     * A {@link ChangeLog} uses the same records after its own magic number and version: IRI
+     * definitions as usual, axiom and IMPORT records for additions, each preceded by a REMOVE
+     * record for removals, and a COMMIT record after every batch of changes.
+     */
+    static final int LOG_MAGIC = 0x4f574c4c; // "OWLL"
+    static final int LOG_VERSION = 1;
+
+    static final int END = 0x00;
+    static final int ONTOLOGY_ID = 0x01;
+    static final int NAMESPACE = 0x02;
+    static final int IRI_DEFINITION = 0x03;
+    static final int IMPORT = 0x04;
+    static final int REMOVE = 0x05;
+    static final int COMMIT = 0x06;
+
+    static final int DECLARATION = 0x10;
+    static final int SUBCLASS = 0x11;
+    static final int SUBCLASS_SOME_VALUES = 0x12;
+    static final int DISJOINT_CLASSES = 0x13;
+    static final int CLASS_ASSERTION = 0x14;
+    static final int OBJECT_PROPERTY_ASSERTION = 0x15;
+    static final int DATA_PROPERTY_ASSERTION = 0x16;
+
+    static final int RESIDUAL = 0x7f;
+
+    static final int ENTITY_CLASS = 0;
+    static final int ENTITY_OBJECT_PROPERTY = 1;
+    static final int ENTITY_DATA_PROPERTY = 2;
+    static final int ENTITY_ANNOTATION_PROPERTY = 3;
+    static final int ENTITY_NAMED_INDIVIDUAL = 4;
+    static final int ENTITY_DATATYPE = 5;
+
+    /**
+     * Used in place of an IRI id for an absent IRI (the IRI of an anonymous ontology).
+     */
+    static final int NO_IRI = 0;
+
+    private SnapshotFormat() {
+    }
+}
@@ -0,0 +1,311 @@
+package com.autumncode.owlapi.ontology;
+
+import com.google.common.base.Optional;
+import org.semanticweb.owlapi.apibinding.OWLManager;
+import org.semanticweb.owlapi.formats.FunctionalSyntaxDocumentFormat;
+import org.semanticweb.owlapi.io.StreamDocumentSource;
+import org.semanticweb.owlapi.model.*;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static com.autumncode.owlapi.ontology.SnapshotFormat.*;
+
+/**
+ * Reads ontologies written by {@link SnapshotWriter}.
+ */
+class SnapshotReader {
+    private final DataInputStream in;
+    private final OWLDataFactory df;
+    private final List<String> namespaces = new ArrayList<>();
+    private final List<IRI> iris = new ArrayList<>();
+    private final RecordInput record = new RecordInput();
+    private OWLOntologyManager scratch;
+
+    SnapshotReader(InputStream in, OWLDataFactory df) {
+        this.in = new DataInputStream(in);
+        this.df = df;
+        iris.add(null); // id 0 is NO_IRI
+    }
+
+    OWLOntology readOntology(OntologyHelper helper) throws IOException, OWLOntologyCreationException {
+        if (in.readInt() != MAGIC) {
+            throw new IOException("not an ontology snapshot");
+        }
+        int version = in.readUnsignedShort();
+        if (version > VERSION) {
+            throw new IOException("snapshot version " + version + " is newer than the supported version " + VERSION);
+        }
+
+        OWLOntology o = null;
+        BulkLoader loader = null;
+        List<OWLOntologyChange> header = new ArrayList<>();
+        for (int tag = record.read(in); tag != END; tag = record.read(in)) {
+            switch (tag) {
+                case NAMESPACE:
+                case IRI_DEFINITION:
+                    readDefinition(tag);
+                    break;
+                case ONTOLOGY_ID:
+                    o = helper.m.createOntology(readOntologyID());
+                    loader = helper.bulkLoader(o);
+                    break;
+                case IMPORT:
+                    header.add(new AddImport(checkOntology(o), df.getOWLImportsDeclaration(readIRI())));
+                    break;
+                case RESIDUAL:
+                    readResidual(checkOntology(o), loader, header);
+                    break;
+                default:
+                    OWLAxiom axiom = readAxiom(tag);
+                    if (axiom != null) {
+                        checkOntology(o);
+                        loader.add(axiom);
+                    }
+            }
+        }
+        checkOntology(o);
+        loader.finish();
+        if (!header.isEmpty()) {
+            helper.m.applyChanges(header);
+        }
+        return o;
+    }
+
+    /**
+     * Reads the next record, for callers that interpret the records themselves.
+     *
+     * @return the record's tag
+     */
+    int next() throws IOException {
+        return record.read(in);
+    }
+
+    IRI readImport() throws IOException {
+        return readIRI();
+    }
+
+    List<String> getNamespaces() {
+        return namespaces;
+    }
+
+    List<IRI> getIRIs() {
+        return iris;
+    }
+
+    private static OWLOntology checkOntology(OWLOntology o) throws IOException {
+        if (o == null) {
+            throw new IOException("snapshot has no ontology header");
+        }
+        return o;
+    }
+
+    /**
+     * Interns a namespace or IRI definition.
+     *
+     * @param tag either NAMESPACE or IRI_DEFINITION
+     */
+    void readDefinition(int tag) throws IOException {
+        if (tag == NAMESPACE) {
+            namespaces.add(record.readString());
+        } else {
+            String namespace = namespaces.get(record.readVarint());
+            iris.add(IRI.create(namespace + record.readString()));
+        }
+    }
+
+    private OWLOntologyID readOntologyID() throws IOException {
+        IRI ontologyIRI = iris.get(record.readVarint());
+        IRI versionIRI = iris.get(record.readVarint());
+        if (ontologyIRI == null) {
+            return new OWLOntologyID();
+        }
+        return new OWLOntologyID(Optional.of(ontologyIRI), Optional.fromNullable(versionIRI));
+    }
+
+    private IRI readIRI() throws IOException {
+        int id = record.readVarint();
+        if (id <= 0 || id >= iris.size()) {
+            throw new IOException("reference to undefined IRI " + id);
+        }
+        return iris.get(id);
+    }
+
+    /**
+     * Decodes one axiom record.
+     *
+     * @param tag the record's tag
+     * @return the axiom, or null if this reader doesn't know the tag (and has skipped it)
+     */
+    OWLAxiom readAxiom(int tag) throws IOException {
+        switch (tag) {
+            case DECLARATION:
+                return df.getOWLDeclarationAxiom(readEntity(record.readVarint()));
+            case SUBCLASS:
+                return df.getOWLSubClassOfAxiom(df.getOWLClass(readIRI()), df.getOWLClass(readIRI()));
+            case SUBCLASS_SOME_VALUES: {
+                OWLClass subclass = df.getOWLClass(readIRI());
+                OWLObjectProperty property = df.getOWLObjectProperty(readIRI());
+                return df.getOWLSubClassOfAxiom(subclass,
+                        df.getOWLObjectSomeValuesFrom(property, df.getOWLClass(readIRI())));
+            }
+            case DISJOINT_CLASSES: {
+                int count = record.readVarint();
+                Set<OWLClassExpression> classes = new HashSet<>();
+                for (int i = 0; i < count; i++) {
+                    classes.add(df.getOWLClass(readIRI()));
+                }
+                return df.getOWLDisjointClassesAxiom(classes);
+            }
+            case CLASS_ASSERTION: {
+                OWLClass clazz = df.getOWLClass(readIRI());
+                return df.getOWLClassAssertionAxiom(clazz, df.getOWLNamedIndividual(readIRI()));
+            }
+            case OBJECT_PROPERTY_ASSERTION: {
+                OWLObjectProperty property = df.getOWLObjectProperty(readIRI());
+                OWLNamedIndividual subject = df.getOWLNamedIndividual(readIRI());
+                return df.getOWLObjectPropertyAssertionAxiom(property, subject, df.getOWLNamedIndividual(readIRI()));
+            }
+            case DATA_PROPERTY_ASSERTION: {
+                OWLDataProperty property = df.getOWLDataProperty(readIRI());
+                OWLNamedIndividual subject = df.getOWLNamedIndividual(readIRI());
+                IRI datatype = readIRI();
+                String lang = record.readString();
+                String lexical = record.readString();
+                OWLLiteral literal = lang.isEmpty()
+                        ? df.getOWLLiteral(lexical, df.getOWLDatatype(datatype))
+                        : df.getOWLLiteral(lexical, lang);
+                return df.getOWLDataPropertyAssertionAxiom(property, subject, literal);
+            }
+            default:
+                return null;
+        }
+    }
+
+    private OWLEntity readEntity(int type) throws IOException {
+        IRI iri = readIRI();
+        switch (type) {
+            case ENTITY_CLASS:
+                return df.getOWLClass(iri);
+            case ENTITY_OBJECT_PROPERTY:
+                return df.getOWLObjectProperty(iri);
+            case ENTITY_DATA_PROPERTY:
+                return df.getOWLDataProperty(iri);
+            case ENTITY_ANNOTATION_PROPERTY:
+                return df.getOWLAnnotationProperty(iri);
+            case ENTITY_NAMED_INDIVIDUAL:
+                return df.getOWLNamedIndividual(iri);
+            case ENTITY_DATATYPE:
+                return df.getOWLDatatype(iri);
+            default:
+                throw new IOException("unknown entity type " + type);
+        }
+    }
+
+    /**
+     * Parses the residual functional syntax document and queues its axioms and ontology
+     * annotations for the target ontology.
+     */
+    private void readResidual(OWLOntology o, BulkLoader loader, List<OWLOntologyChange> header)
+            throws OWLOntologyCreationException {
+        OWLOntology residual = parseResidual();
+        for (OWLAxiom axiom : residual.getAxioms()) {
+            loader.add(axiom);
+        }
+        for (OWLAnnotation annotation : residual.getAnnotations()) {
+            header.add(new AddOntologyAnnotation(o, annotation));
+        }
+    }
+
+    /**
+     * @return the current record's payload, parsed as a functional syntax document into a
+     * scratch manager; valid until the next call
+     */
+    OWLOntology parseResidual() throws OWLOntologyCreationException {
+        if (scratch == null) {
+            scratch = OWLManager.createOWLOntologyManager();
+        }
+        // the previous residual has been read by now; its ontology IRI is the same as this one's
+        for (OWLOntology previous : new ArrayList<>(scratch.getOntologies())) {
+            scratch.removeOntology(previous);
+        }
+        return scratch.loadOntologyFromOntologyDocument(new StreamDocumentSource(
+                record.asStream(), IRI.create("urn:snapshot:residual"), new FunctionalSyntaxDocumentFormat(), null));
+    }
+
+    /**
+     * The payload of the current record. Buffers are reused between records, so a snapshot is
+     * read without allocating per record beyond what the decoded axioms need.
+     */
+    static class RecordInput {
+        private byte[] buf = new byte[256];
+        private int length;
+        private int pos;
+
+        /**
+         * Reads the next record's tag and payload.
+         *
+         * @return the tag
+         */
+        int read(DataInput in) throws IOException {
+            int tag;
+            try {
+                tag = in.readUnsignedByte();
+            } catch (EOFException e) {
+                throw new IOException("snapshot is truncated", e);
+            }
+            if (tag == END) {
+                length = 0;
+                pos = 0;
+                return tag;
+            }
+            int size = 0;
+            for (int shift = 0; ; shift += 7) {
+                int b = in.readUnsignedByte();
+                size |= (b & 0x7f) << shift;
+                if ((b & 0x80) == 0) {
+                    break;
+                }
+            }
+            if (size > buf.length) {
+                buf = new byte[Math.max(size, buf.length * 2)];
+            }
+            in.readFully(buf, 0, size);
+            length = size;
+            pos = 0;
+            return tag;
+        }
+
+        int readVarint() throws IOException {
+            int value = 0;
+            for (int shift = 0; ; shift += 7) {
+                if (pos >= length) {
+                    throw new IOException("record is truncated");
+                }
+                int b = buf[pos++] & 0xff;
+                value |= (b & 0x7f) << shift;
+                if ((b & 0x80) == 0) {
+                    return value;
+                }
+            }
+        }
+
+        String readString() throws IOException {
+            int size = readVarint();
+            if (pos + size > length) {
+                throw new IOException("record is truncated");
+            }
+            String value = new String(buf, pos, size, StandardCharsets.UTF_8);
+            pos += size;
+            return value;
+        }
+
+        InputStream asStream() {
+            return new ByteArrayInputStream(buf, pos, length - pos);
+        }
+    }
+}
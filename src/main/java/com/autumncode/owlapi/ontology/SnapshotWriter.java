@@ -0,0 +1,313 @@
+package com.autumncode.owlapi.ontology;
+
+import org.semanticweb.owlapi.apibinding.OWLManager;
+import org.semanticweb.owlapi.formats.FunctionalSyntaxDocumentFormat;
+import org.semanticweb.owlapi.io.StreamDocumentTarget;
+import org.semanticweb.owlapi.model.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+import static com.autumncode.owlapi.ontology.SnapshotFormat.*;
+
+/**
+ * Writes ontologies in the binary snapshot format described in {@link SnapshotFormat}.
+ */
+class SnapshotWriter {
+    private final DataOutputStream out;
+    private final Map<String, Integer> namespaces = new HashMap<>();
+    private final Map<IRI, Integer> iris = new HashMap<>();
+    private final RecordBuffer record = new RecordBuffer();
+    private final RecordBuffer definition = new RecordBuffer();
+    private OWLOntologyManager scratch;
+
+    SnapshotWriter(OutputStream out) {
+        this.out = new DataOutputStream(out);
+    }
+
+    void writeOntology(OWLOntology o) throws IOException, OWLOntologyStorageException {
+        writeOntology(o.getOntologyID(), o.getImportsDeclarations(), o.getAxioms(), o.getAnnotations());
+    }
+
+    /**
+     * Writes an ontology from its parts, for callers that copied them out of a live ontology.
+     */
+    void writeOntology(OWLOntologyID id, Collection<OWLImportsDeclaration> imports,
+                       Collection<OWLAxiom> axioms, Collection<OWLAnnotation> annotations)
+            throws IOException, OWLOntologyStorageException {
+        out.writeInt(MAGIC);
+        out.writeShort(VERSION);
+
+        int ontologyIRI = id.getOntologyIRI().isPresent() ? iri(id.getOntologyIRI().get()) : NO_IRI;
+        int versionIRI = id.getVersionIRI().isPresent() ? iri(id.getVersionIRI().get()) : NO_IRI;
+        record.writeVarint(ontologyIRI);
+        record.writeVarint(versionIRI);
+        record.writeTo(out, ONTOLOGY_ID);
+
+        for (OWLImportsDeclaration declaration : imports) {
+            writeImport(declaration.getIRI());
+        }
+
+        List<OWLAxiom> residual = new ArrayList<>();
+        for (OWLAxiom axiom : axioms) {
+            if (!writeAxiom(axiom)) {
+                residual.add(axiom);
+            }
+        }
+        writeResidual(residual, annotations);
+
+        out.writeByte(END);
+        out.flush();
+    }
+
+    void writeImport(IRI iri) throws IOException {
+        record.writeVarint(iri(iri));
+        record.writeTo(out, IMPORT);
+    }
+
+    /**
+     * Writes a record with no payload, such as REMOVE or COMMIT.
+     */
+    void writeMarker(int tag) throws IOException {
+        record.writeTo(out, tag);
+    }
+
+    /**
+     * Carries on with the IRI dictionary a reader has built, so records appended to an existing
+     * stream can refer to IRIs defined earlier in it.
+     *
+     * @param reader a reader that has read the stream so far
+     */
+    void continueDictionary(SnapshotReader reader) {
+        List<String> definedNamespaces = reader.getNamespaces();
+        for (int i = 0; i < definedNamespaces.size(); i++) {
+            namespaces.put(definedNamespaces.get(i), i);
+        }
+        List<IRI> definedIRIs = reader.getIRIs();
+        for (int i = 1; i < definedIRIs.size(); i++) {
+            iris.put(definedIRIs.get(i), i);
+        }
+    }
+
+    /**
+     * Writes an axiom as a record of its own, if it has one of the shapes the format knows.
+     *
+     * @param axiom the axiom to write
+     * @return false if the axiom has to go into the residual record instead
+     * @throws IOException if the underlying stream fails
+     */
+    boolean writeAxiom(OWLAxiom axiom) throws IOException {
+        if (axiom.isAnnotated()) {
+            return false;
+        }
+        if (axiom instanceof OWLDeclarationAxiom) {
+            OWLEntity entity = ((OWLDeclarationAxiom) axiom).getEntity();
+            record.writeVarint(entityType(entity));
+            record.writeVarint(iri(entity.getIRI()));
+            record.writeTo(out, DECLARATION);
+            return true;
+        }
+        if (axiom instanceof OWLSubClassOfAxiom) {
+            OWLSubClassOfAxiom ax = (OWLSubClassOfAxiom) axiom;
+            if (ax.getSubClass().isAnonymous()) {
+                return false;
+            }
+            OWLClassExpression superClass = ax.getSuperClass();
+            if (!superClass.isAnonymous()) {
+                record.writeVarint(iri(ax.getSubClass().asOWLClass().getIRI()));
+                record.writeVarint(iri(superClass.asOWLClass().getIRI()));
+                record.writeTo(out, SUBCLASS);
+                return true;
+            }
+            if (superClass instanceof OWLObjectSomeValuesFrom) {
+                OWLObjectSomeValuesFrom some = (OWLObjectSomeValuesFrom) superClass;
+                if (some.getProperty().isAnonymous() || some.getFiller().isAnonymous()) {
+                    return false;
+                }
+                record.writeVarint(iri(ax.getSubClass().asOWLClass().getIRI()));
+                record.writeVarint(iri(some.getProperty().asOWLObjectProperty().getIRI()));
+                record.writeVarint(iri(some.getFiller().asOWLClass().getIRI()));
+                record.writeTo(out, SUBCLASS_SOME_VALUES);
+                return true;
+            }
+            return false;
+        }
+        if (axiom instanceof OWLDisjointClassesAxiom) {
+            Set<OWLClassExpression> classes = ((OWLDisjointClassesAxiom) axiom).getClassExpressions();
+            for (OWLClassExpression ce : classes) {
+                if (ce.isAnonymous()) {
+                    return false;
+                }
+            }
+            record.writeVarint(classes.size());
+            for (OWLClassExpression ce : classes) {
+                record.writeVarint(iri(ce.asOWLClass().getIRI()));
+            }
+            record.writeTo(out, DISJOINT_CLASSES);
+            return true;
+        }
+        if (axiom instanceof OWLClassAssertionAxiom) {
+            OWLClassAssertionAxiom ax = (OWLClassAssertionAxiom) axiom;
+            if (ax.getClassExpression().isAnonymous() || ax.getIndividual().isAnonymous()) {
+                return false;
+            }
+            record.writeVarint(iri(ax.getClassExpression().asOWLClass().getIRI()));
+            record.writeVarint(iri(ax.getIndividual().asOWLNamedIndividual().getIRI()));
+            record.writeTo(out, CLASS_ASSERTION);
+            return true;
+        }
+        if (axiom instanceof OWLObjectPropertyAssertionAxiom) {
+            OWLObjectPropertyAssertionAxiom ax = (OWLObjectPropertyAssertionAxiom) axiom;
+            if (ax.getProperty().isAnonymous() || ax.getSubject().isAnonymous() || ax.getObject().isAnonymous()) {
+                return false;
+            }
+            record.writeVarint(iri(ax.getProperty().asOWLObjectProperty().getIRI()));
+            record.writeVarint(iri(ax.getSubject().asOWLNamedIndividual().getIRI()));
+            record.writeVarint(iri(ax.getObject().asOWLNamedIndividual().getIRI()));
+            record.writeTo(out, OBJECT_PROPERTY_ASSERTION);
+            return true;
+        }
+        if (axiom instanceof OWLDataPropertyAssertionAxiom) {
+            OWLDataPropertyAssertionAxiom ax = (OWLDataPropertyAssertionAxiom) axiom;
+            if (ax.getSubject().isAnonymous()) {
+                return false;
+            }
+            OWLLiteral literal = ax.getObject();
+            record.writeVarint(iri(ax.getProperty().asOWLDataProperty().getIRI()));
+            record.writeVarint(iri(ax.getSubject().asOWLNamedIndividual().getIRI()));
+            record.writeVarint(iri(literal.getDatatype().getIRI()));
+            record.writeString(literal.getLang());
+            record.writeString(literal.getLiteral());
+            record.writeTo(out, DATA_PROPERTY_ASSERTION);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Writes the axioms (and ontology annotations) that have no record of their own as a
+     * functional syntax document. Nothing is written if there's nothing left over.
+     */
+    void writeResidual(Collection<OWLAxiom> axioms, Collection<OWLAnnotation> annotations)
+            throws IOException, OWLOntologyStorageException {
+        if (axioms.isEmpty() && annotations.isEmpty()) {
+            return;
+        }
+        OWLOntologyManager scratch = scratch();
+        OWLOntology residual = null;
+        try {
+            residual = scratch.createOntology();
+            scratch.addAxioms(residual, new HashSet<>(axioms));
+            for (OWLAnnotation annotation : annotations) {
+                scratch.applyChange(new AddOntologyAnnotation(residual, annotation));
+            }
+            scratch.saveOntology(residual, new FunctionalSyntaxDocumentFormat(), new StreamDocumentTarget(record));
+        } catch (OWLOntologyCreationException e) {
+            throw new OWLOntologyStorageException(e);
+        } finally {
+            if (residual != null) {
+                scratch.removeOntology(residual);
+            }
+        }
+        record.writeTo(out, RESIDUAL);
+    }
+
+    /**
+     * The manager residual documents are rendered with, created on first use and reused after
+     * that. It doesn't add declarations for undeclared entities, which the functional syntax
+     * writer otherwise does: they would come back as axioms the ontology never had.
+     */
+    private OWLOntologyManager scratch() {
+        if (scratch == null) {
+            scratch = OWLManager.createOWLOntologyManager();
+            scratch.setOntologyWriterConfiguration(
+                    scratch.getOntologyWriterConfiguration().withAddMissingDeclarations(false));
+        }
+        return scratch;
+    }
+
+    /**
+     * Returns the id of an IRI, writing its definition (and its namespace's, if that's new
+     * too) to the stream first if it hasn't been seen yet. Definitions always precede the
+     * record that refers to them, because the record being built is only written afterwards.
+     */
+    private int iri(IRI iri) throws IOException {
+        Integer id = iris.get(iri);
+        if (id != null) {
+            return id;
+        }
+        String value = iri.toString();
+        int split = Math.max(value.lastIndexOf('#'), value.lastIndexOf('/')) + 1;
+        String namespace = value.substring(0, split);
+        Integer namespaceId = namespaces.get(namespace);
+        if (namespaceId == null) {
+            namespaceId = namespaces.size();
+            namespaces.put(namespace, namespaceId);
+            definition.writeString(namespace);
+            definition.writeTo(out, NAMESPACE);
+        }
+        id = iris.size() + 1;
+        iris.put(iri, id);
+        definition.writeVarint(namespaceId);
+        definition.writeString(value.substring(split));
+        definition.writeTo(out, IRI_DEFINITION);
+        return id;
+    }
+
+    private static int entityType(OWLEntity entity) {
+        if (entity.isOWLClass()) {
+            return ENTITY_CLASS;
+        }
+        if (entity.isOWLObjectProperty()) {
+            return ENTITY_OBJECT_PROPERTY;
+        }
+        if (entity.isOWLDataProperty()) {
+            return ENTITY_DATA_PROPERTY;
+        }
+        if (entity.isOWLAnnotationProperty()) {
+            return ENTITY_ANNOTATION_PROPERTY;
+        }
+        if (entity.isOWLNamedIndividual()) {
+            return ENTITY_NAMED_INDIVIDUAL;
+        }
+        return ENTITY_DATATYPE;
+    }
+
+    /**
+     * A reusable buffer for one record's payload.
+     */
+    static class RecordBuffer extends ByteArrayOutputStream {
+        void writeVarint(int value) {
+            while ((value & ~0x7f) != 0) {
+                write((value & 0x7f) | 0x80);
+                value >>>= 7;
+            }
+            write(value);
+        }
+
+        void writeString(String value) {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            writeVarint(bytes.length);
+            write(bytes, 0, bytes.length);
+        }
+
+        /**
+         * Writes the tag, the payload length and the payload, and empties the buffer.
+         */
+        void writeTo(DataOutputStream out, int tag) throws IOException {
+            out.writeByte(tag);
+            int length = size();
+            while ((length & ~0x7f) != 0) {
+                out.writeByte((length & 0x7f) | 0x80);
+                length >>>= 7;
+            }
+            out.writeByte(length);
+            out.write(buf, 0, count);
+            reset();
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package com.autumncode.owlapi.ontology;
+
+import java.util.Arrays;
+
+/**
+ * A set of ints kept as a sorted array: four bytes an element, no boxing, binary-search
+ * lookups. Inserts shift the tail of the array, so they're cheapest at the end, which is where
+ * ids handed out in increasing order land.
+ */
+final class SortedIntSet {
+    private static final int[] EMPTY = new int[0];
+
+    private int[] values;
+    private int size;
+
+    SortedIntSet() {
+        this.values = EMPTY;
+    }
+
+    /**
+     * @param sorted values in increasing order, without duplicates; the array is taken over
+     */
+    SortedIntSet(int[] sorted) {
+        this.values = sorted;
+        this.size = sorted.length;
+    }
+
+    boolean add(int value) {
+        int index = Arrays.binarySearch(values, 0, size, value);
+        if (index >= 0) {
+            return false;
+        }
+        index = -index - 1;
+        if (size == values.length) {
+            values = Arrays.copyOf(values, Math.max(4, size + (size >> 1) + 1));
+        }
+        System.arraycopy(values, index, values, index + 1, size - index);
+        values[index] = value;
+        size++;
+        return true;
+    }
+
+    boolean remove(int value) {
+        int index = Arrays.binarySearch(values, 0, size, value);
+        if (index < 0) {
+            return false;
+        }
+        System.arraycopy(values, index + 1, values, index, size - index - 1);
+        size--;
+        return true;
+    }
+
+    boolean contains(int value) {
+        return Arrays.binarySearch(values, 0, size, value) >= 0;
+    }
+
+    int size() {
+        return size;
+    }
+
+    int get(int index) {
+        return values[index];
+    }
+
+    int[] toArray() {
+        return Arrays.copyOf(values, size);
+    }
+}
@@ -0,0 +1,215 @@
+package com.autumncode.owlapi.ontology;
+
+import org.openrdf.rio.RDFFormat;
+import org.openrdf.rio.RDFParser;
+import org.openrdf.rio.Rio;
+import org.semanticweb.owlapi.apibinding.OWLManager;
+import org.semanticweb.owlapi.formats.RDFXMLDocumentFormat;
+import org.semanticweb.owlapi.io.StreamDocumentSource;
+import org.semanticweb.owlapi.model.*;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * A streaming load in progress: a large RDF/XML or Turtle document being parsed from a
+ * memory-mapped file and committed into an ontology in chunks, on a background thread.
+ *
+ * <p>Chunks are committed as they fill up, through the helper, on the load's own thread. With a
+ * {@link ConcurrentOntologyHelper}, the target ontology can be read while the load runs through
+ * {@link ConcurrentOntologyHelper#snapshot(OWLOntology)}; with a plain OntologyHelper nothing
+ * guards the commits, so don't touch the ontology until {@link #await()} returns. The progress
+ * listener is called after every chunk, and once more when the load finishes. If the load fails,
+ * the chunks already committed stay in the ontology, and the helper is told the ontology changed
+ * just as it is after a successful load.</p>
+ *
+ * @see OntologyHelper#readOntologyStreaming(Path, RDFFormat, OWLOntology, Consumer)
+ */
+public class StreamingLoad {
+    private final OntologyHelper helper;
+    private final Path file;
+    private final RDFFormat format;
+    private final OWLOntology ontology;
+    private final Consumer<StreamingLoad> progressListener;
+    private final int chunkSize;
+    private final AtomicLong statements = new AtomicLong();
+    private final AtomicLong streamedAxioms = new AtomicLong();
+    private final CompletableFuture<BulkLoadStatistics> result = new CompletableFuture<>();
+    private volatile MappedFileInputStream input;
+    private volatile long totalBytes;
+
+    StreamingLoad(OntologyHelper helper, Path file, RDFFormat format, OWLOntology ontology,
+                  Consumer<StreamingLoad> progressListener, int chunkSize) {
+        this.helper = helper;
+        this.file = file;
+        this.format = format;
+        this.ontology = ontology;
+        this.progressListener = progressListener;
+        this.chunkSize = chunkSize;
+    }
+
+    StreamingLoad start() {
+        Thread thread = new Thread(this::run, "streaming-load-" + file.getFileName());
+        thread.setDaemon(true);
+        thread.start();
+        return this;
+    }
+
+    void run() {
+        BulkLoader loader = helper.bulkLoader(ontology, chunkSize, false);
+        BulkLoadStatistics statistics = null;
+        Exception failure = null;
+        StreamingRDFHandler handler = new StreamingRDFHandler(helper.df, loader, this);
+        try (MappedFileInputStream in = new MappedFileInputStream(file)) {
+            input = in;
+            totalBytes = in.size();
+            RDFParser parser = Rio.createParser(format);
+            parser.setRDFHandler(handler);
+            parser.parse(in, file.toUri().toString());
+            loader.flush();
+            loadResidual(loader, handler.getResidual());
+            statistics = loader.finish();
+        } catch (Exception e) {
+            failure = e;
+        } finally {
+            // chunks committed before a failure still have to reach whatever tracks the ontology
+            loader.abort();
+        }
+        try {
+            handler.deleteResidual();
+        } catch (IOException e) {
+            if (failure == null) {
+                failure = e;
+            } else {
+                failure.addSuppressed(e);
+            }
+        }
+        // the last report goes out before anyone waiting on the result wakes up
+        reportProgress();
+        if (failure == null) {
+            result.complete(statistics);
+        } else {
+            result.completeExceptionally(failure);
+        }
+    }
+
+    /**
+     * Hands the triples the handler couldn't translate on its own (spilled to a file as they were
+     * parsed) to the regular RDF/XML parser, and copies what comes out - axioms, imports and
+     * ontology annotations - into the target.
+     */
+    private void loadResidual(BulkLoader loader, Path residual) throws Exception {
+        if (residual == null) {
+            return;
+        }
+        OWLOntologyManager scratch = OWLManager.createOWLOntologyManager();
+        OWLOntologyLoaderConfiguration config = new OWLOntologyLoaderConfiguration()
+                .setMissingImportHandlingStrategy(MissingImportHandlingStrategy.SILENT);
+        OWLOntology parsed;
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(residual))) {
+            parsed = scratch.loadOntologyFromOntologyDocument(
+                    new StreamDocumentSource(in, IRI.create(file.toUri()), new RDFXMLDocumentFormat(), null),
+                    config);
+        }
+        for (OWLAxiom axiom : parsed.getAxioms()) {
+            loader.add(axiom);
+        }
+        loader.flush();
+
+        List<OWLOntologyChange> header = new ArrayList<>();
+        for (OWLImportsDeclaration declaration : parsed.getImportsDeclarations()) {
+            header.add(new AddImport(ontology, declaration));
+        }
+        for (OWLAnnotation annotation : parsed.getAnnotations()) {
+            header.add(new AddOntologyAnnotation(ontology, annotation));
+        }
+        if (!header.isEmpty()) {
+            helper.commit(ontology, header, true);
+        }
+    }
+
+    void statementHandled(boolean streamed) {
+        long count = statements.incrementAndGet();
+        if (streamed) {
+            streamedAxioms.incrementAndGet();
+        }
+        if (count % chunkSize == 0) {
+            reportProgress();
+        }
+    }
+
+    private void reportProgress() {
+        if (progressListener != null) {
+            progressListener.accept(this);
+        }
+    }
+
+    public Path getFile() {
+        return file;
+    }
+
+    public OWLOntology getOntology() {
+        return ontology;
+    }
+
+    public long getBytesRead() {
+        MappedFileInputStream in = input;
+        return in == null ? 0 : in.position();
+    }
+
+    public long getTotalBytes() {
+        return totalBytes;
+    }
+
+    public double getFractionComplete() {
+        long total = totalBytes;
+        return total == 0 ? (isDone() ? 1.0 : 0.0) : (double) getBytesRead() / total;
+    }
+
+    /**
+     * @return the number of triples parsed so far
+     */
+    public long getStatements() {
+        return statements.get();
+    }
+
+    /**
+     * @return the number of axioms translated directly from triples (and so committed, or
+     * about to be, before the parse finishes)
+     */
+    public long getStreamedAxioms() {
+        return streamedAxioms.get();
+    }
+
+    public boolean isDone() {
+        return result.isDone();
+    }
+
+    /**
+     * Waits for the load to finish.
+     *
+     * @return the statistics of the underlying bulk load
+     * @throws OWLOntologyCreationException if the document couldn't be read or parsed
+     * @throws InterruptedException         if the waiting thread is interrupted
+     */
+    public BulkLoadStatistics await() throws OWLOntologyCreationException, InterruptedException {
+        try {
+            return result.get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof OWLOntologyCreationException) {
+                throw (OWLOntologyCreationException) cause;
+            }
+            throw new OWLOntologyCreationException("streaming load of " + file + " failed", cause);
+        }
+    }
+}
@@ -0,0 +1,276 @@
+package com.autumncode.owlapi.ontology;
+
+import com.github.luben.zstd.ZstdOutputStream;
+import org.semanticweb.owlapi.formats.PrefixDocumentFormat;
+import org.semanticweb.owlapi.functional.renderer.FunctionalSyntaxObjectRenderer;
+import org.semanticweb.owlapi.model.*;
+import org.semanticweb.owlapi.util.DefaultPrefixManager;
+
+import java.io.*;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Writes an ontology in functional syntax one axiom at a time, straight to a stream, instead of
+ * rendering the whole document first.
+ *
+ * <pre>
+ * oh.streamingWriter(o).compression(Compression.GZIP).writeTo(Files.newOutputStream(file));
+ * </pre>
+ *
+ * <p>The output is deterministic: declarations first, then the other axiom types by name, and
+ * the axioms of each type in their natural order, so the same ontology always produces the same
+ * bytes. Each axiom is rendered into a small scratch buffer and copied out through a fixed-size
+ * buffer; the only thing that grows with the ontology is the list of axiom references sorted
+ * for the type being written.</p>
+ *
+ * <p>With a shard size, {@link #writeShards(Path, String)} splits the output into files of
+ * about that many (uncompressed) bytes. Each shard is a complete document for the same
+ * ontology, so the shards can be loaded separately or fed to an {@link IngestionPipeline}.</p>
+ */
+public class StreamingOntologyWriter {
+    public static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+
+    public enum Compression {
+        NONE(""), GZIP(".gz"),
+        /**
+         * Needs <code>com.github.luben:zstd-jni</code> on the classpath.
+         */
+        ZSTD(".zst");
+
+        final String extension;
+
+        Compression(String extension) {
+            this.extension = extension;
+        }
+    }
+
+    private final OntologyHelper helper;
+    private final OWLOntology ontology;
+    private Compression compression = Compression.NONE;
+    private long shardSize = Long.MAX_VALUE;
+    private int bufferSize = DEFAULT_BUFFER_SIZE;
+
+    StreamingOntologyWriter(OntologyHelper helper, OWLOntology ontology) {
+        this.helper = helper;
+        this.ontology = ontology;
+    }
+
+    public StreamingOntologyWriter compression(Compression compression) {
+        this.compression = compression;
+        return this;
+    }
+
+    /**
+     * @param bytes the most (uncompressed) bytes in one shard; a single axiom bigger than
+     *              this still gets a shard of its own
+     * @return this writer
+     */
+    public StreamingOntologyWriter shardSize(long bytes) {
+        if (bytes <= 0) {
+            throw new IllegalArgumentException("shard size must be positive: " + bytes);
+        }
+        this.shardSize = bytes;
+        return this;
+    }
+
+    public StreamingOntologyWriter bufferSize(int bytes) {
+        this.bufferSize = bytes;
+        return this;
+    }
+
+    /**
+     * Writes the whole ontology as one document, ignoring the shard size.
+     *
+     * @param out where the document goes; flushed, but not closed
+     * @return the number of axioms written
+     * @throws OWLOntologyStorageException if writing fails
+     */
+    public long writeTo(OutputStream out) throws OWLOntologyStorageException {
+        OntologyOperationEvent event = helper.instrumentation.start();
+        try {
+            Shard shard = new Shard(new FilterOutputStream(out) {
+                @Override
+                public void write(byte[] b, int off, int len) throws IOException {
+                    out.write(b, off, len);
+                }
+
+                @Override
+                public void close() throws IOException {
+                    flush();
+                }
+            });
+            long axioms = write(() -> shard, Long.MAX_VALUE);
+            helper.instrumentation.stop(event, Instrumentation.Operation.WRITE, ontology, "functional-stream", (int) axioms);
+            return axioms;
+        } catch (IOException e) {
+            throw new OWLOntologyStorageException(e);
+        }
+    }
+
+    public long writeTo(WritableByteChannel channel) throws OWLOntologyStorageException {
+        return writeTo(Channels.newOutputStream(channel));
+    }
+
+    /**
+     * Writes the ontology as numbered shards, e.g. <code>terminator-00000.ofn.gz</code>.
+     *
+     * @param directory where the shards go
+     * @param baseName  the start of each shard's file name
+     * @return the shard files, in order
+     * @throws OWLOntologyStorageException if writing fails
+     */
+    public List<Path> writeShards(Path directory, String baseName) throws OWLOntologyStorageException {
+        OntologyOperationEvent event = helper.instrumentation.start();
+        List<Path> files = new ArrayList<>();
+        try {
+            Files.createDirectories(directory);
+            long axioms = write(() -> {
+                Path file = directory.resolve(String.format("%s-%05d.ofn%s", baseName, files.size(), compression.extension));
+                files.add(file);
+                return new Shard(Files.newOutputStream(file));
+            }, shardSize);
+            helper.instrumentation.stop(event, Instrumentation.Operation.WRITE, ontology, "functional-shards", (int) axioms);
+            return files;
+        } catch (IOException e) {
+            throw new OWLOntologyStorageException(e);
+        }
+    }
+
+    private interface ShardSource {
+        Shard next() throws IOException;
+    }
+
+    private long write(ShardSource shards, long limit) throws IOException {
+        PrefixManager prefixes = prefixes();
+        StringWriter scratch = new StringWriter();
+        FunctionalSyntaxObjectRenderer renderer = new FunctionalSyntaxObjectRenderer(ontology, scratch);
+        renderer.setPrefixManager(prefixes);
+        String header = header(prefixes, renderer, scratch);
+
+        Shard shard = shards.next();
+        shard.write(header);
+        long axioms = 0;
+        for (AxiomType<?> type : axiomTypes()) {
+            List<OWLAxiom> sorted = new ArrayList<>(ontology.getAxioms(type));
+            Collections.sort(sorted);
+            for (OWLAxiom axiom : sorted) {
+                scratch.getBuffer().setLength(0);
+                axiom.accept(renderer);
+                scratch.write('\n');
+                String rendered = scratch.toString();
+                if (shard.axioms > 0 && shard.bytes + rendered.length() + 2 > limit) {
+                    shard.close();
+                    shard = shards.next();
+                    shard.write(header);
+                }
+                shard.write(rendered);
+                shard.axioms++;
+                axioms++;
+            }
+        }
+        shard.close();
+        return axioms;
+    }
+
+    /**
+     * The prefixes the ontology was loaded with, if any, and its own IRI as the default prefix.
+     */
+    private PrefixManager prefixes() {
+        DefaultPrefixManager prefixes = new DefaultPrefixManager();
+        OWLDocumentFormat format = ontology.getOWLOntologyManager().getOntologyFormat(ontology);
+        if (format instanceof PrefixDocumentFormat) {
+            prefixes.copyPrefixesFrom((PrefixDocumentFormat) format);
+        }
+        OWLOntologyID id = ontology.getOntologyID();
+        if (prefixes.getDefaultPrefix() == null && id.getOntologyIRI().isPresent()) {
+            String namespace = id.getOntologyIRI().get().toString();
+            prefixes.setDefaultPrefix(namespace.endsWith("/") || namespace.endsWith("#") ? namespace : namespace + "#");
+        }
+        return prefixes;
+    }
+
+    private String header(PrefixManager prefixes, FunctionalSyntaxObjectRenderer renderer, StringWriter scratch) {
+        StringBuilder sb = new StringBuilder();
+        new TreeMap<>(prefixes.getPrefixName2PrefixMap()).forEach((name, prefix) ->
+                sb.append("Prefix(").append(name).append("=<").append(prefix).append(">)\n"));
+        sb.append("\n\nOntology(");
+        OWLOntologyID id = ontology.getOntologyID();
+        if (id.getOntologyIRI().isPresent()) {
+            sb.append('<').append(id.getOntologyIRI().get()).append('>');
+            if (id.getVersionIRI().isPresent()) {
+                sb.append("\n<").append(id.getVersionIRI().get()).append('>');
+            }
+        }
+        sb.append('\n');
+        for (OWLImportsDeclaration declaration : new TreeSet<>(ontology.getImportsDeclarations())) {
+            sb.append("Import(<").append(declaration.getIRI()).append(">)\n");
+        }
+        for (OWLAnnotation annotation : new TreeSet<>(ontology.getAnnotations())) {
+            scratch.getBuffer().setLength(0);
+            annotation.accept(renderer);
+            sb.append(scratch).append('\n');
+        }
+        return sb.append('\n').toString();
+    }
+
+    private static List<AxiomType<?>> axiomTypes() {
+        List<AxiomType<?>> types = new ArrayList<>(AxiomType.AXIOM_TYPES);
+        types.sort(Comparator.comparing((AxiomType<?> type) -> type != AxiomType.DECLARATION)
+                .thenComparing(AxiomType::getName));
+        return types;
+    }
+
+    /**
+     * One output document: a compressing (if asked), buffered UTF-8 writer over a stream.
+     */
+    private class Shard implements Closeable {
+        final Writer writer;
+        long bytes;
+        long axioms;
+
+        Shard(OutputStream out) throws IOException {
+            writer = new BufferedWriter(new OutputStreamWriter(compress(out), StandardCharsets.UTF_8), bufferSize);
+        }
+
+        void write(String text) throws IOException {
+            writer.write(text);
+            bytes += text.length();
+        }
+
+        @Override
+        public void close() throws IOException {
+            writer.write(")\n");
+            writer.close();
+        }
+    }
+
+    private OutputStream compress(OutputStream out) throws IOException {
+        switch (compression) {
+            case GZIP:
+                return new GZIPOutputStream(out, bufferSize);
+            case ZSTD:
+                try {
+                    return Zstd.compress(out);
+                } catch (NoClassDefFoundError e) {
+                    throw new IllegalStateException("zstd compression needs com.github.luben:zstd-jni on the classpath", e);
+                }
+            default:
+                return out;
+        }
+    }
+
+    /**
+     * Keeps the zstd-jni reference out of this class, so it loads without zstd-jni present.
+     */
+    private static class Zstd {
+        static OutputStream compress(OutputStream out) throws IOException {
+            return new ZstdOutputStream(out);
+        }
+    }
+}
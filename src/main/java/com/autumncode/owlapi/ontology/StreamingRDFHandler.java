@@ -0,0 +1,216 @@
+package com.autumncode.owlapi.ontology;
+
+import org.openrdf.model.*;
+import org.openrdf.rio.RDFFormat;
+import org.openrdf.rio.RDFHandlerException;
+import org.openrdf.rio.RDFWriter;
+import org.openrdf.rio.Rio;
+import org.openrdf.rio.helpers.RDFHandlerBase;
+import org.semanticweb.owlapi.model.IRI;
+import org.semanticweb.owlapi.model.OWLAxiom;
+import org.semanticweb.owlapi.model.OWLDataFactory;
+import org.semanticweb.owlapi.model.OWLLiteral;
+import org.semanticweb.owlapi.vocab.OWLRDFVocabulary;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Turns RDF triples into axioms as they come out of a Rio parser.
+ *
+ * <p>Only the flat, single-triple shapes are translated here: class and property declarations,
+ * named subclass and disjointness axioms, class assertions, and object or data property
+ * assertions between named individuals. Those are the bulk of any large export, and they can be
+ * committed immediately. Everything else - anything involving a blank node (restrictions, lists,
+ * reified axiom annotations), annotations, and the ontology header - is written aside to a
+ * temporary RDF/XML file of "residual" triples, which is handed to the regular OWLAPI parser at
+ * the end. The residual part is usually the TBox, which is small compared to the ABox.</p>
+ *
+ * <p>A property assertion is only translated here if its predicate was declared earlier in the
+ * document as an object or data property (and not also as an annotation property), and its
+ * subject isn't an ontology; anything else goes to the residual parser, which sees the whole
+ * document's declarations. The OWLAPI writers put property declarations before individuals, so
+ * for documents the helper wrote itself, nearly all of the ABox is still streamed.</p>
+ */
+class StreamingRDFHandler extends RDFHandlerBase {
+    private static final String RDF_TYPE = OWLRDFVocabulary.RDF_TYPE.getIRI().toString();
+    private static final String SUBCLASS_OF = OWLRDFVocabulary.RDFS_SUBCLASS_OF.getIRI().toString();
+    private static final String DISJOINT_WITH = OWLRDFVocabulary.OWL_DISJOINT_WITH.getIRI().toString();
+    private static final String ANNOTATION_PROPERTY = OWLRDFVocabulary.OWL_ANNOTATION_PROPERTY.getIRI().toString();
+    private static final String NAMED_INDIVIDUAL = OWLRDFVocabulary.OWL_NAMED_INDIVIDUAL.getIRI().toString();
+    private static final String OBJECT_PROPERTY = OWLRDFVocabulary.OWL_OBJECT_PROPERTY.getIRI().toString();
+    private static final String DATA_PROPERTY = OWLRDFVocabulary.OWL_DATA_PROPERTY.getIRI().toString();
+    private static final String ONTOLOGY = OWLRDFVocabulary.OWL_ONTOLOGY.getIRI().toString();
+    private static final String[] VOCABULARIES = {
+            "http://www.w3.org/2002/07/owl#",
+            "http://www.w3.org/1999/02/22-rdf-syntax-ns#",
+            "http://www.w3.org/2000/01/rdf-schema#",
+            "http://www.w3.org/2001/XMLSchema#"
+    };
+
+    private final OWLDataFactory df;
+    private final BulkLoader loader;
+    private final StreamingLoad load;
+    private final Set<String> annotationProperties = new HashSet<>();
+    private final Set<String> objectProperties = new HashSet<>();
+    private final Set<String> dataProperties = new HashSet<>();
+    private final Set<String> ontologies = new HashSet<>();
+    private Path residual;
+    private OutputStream residualOut;
+    private RDFWriter residualWriter;
+
+    StreamingRDFHandler(OWLDataFactory df, BulkLoader loader, StreamingLoad load) {
+        this.df = df;
+        this.loader = loader;
+        this.load = load;
+    }
+
+    /**
+     * @return the file of residual triples once the parse has ended, or null if there were none
+     */
+    Path getResidual() {
+        return residual;
+    }
+
+    /**
+     * Deletes the residual file, if there is one.
+     */
+    void deleteResidual() throws IOException {
+        if (residualOut != null) {
+            residualOut.close();
+        }
+        if (residual != null) {
+            Files.deleteIfExists(residual);
+        }
+    }
+
+    @Override
+    public void handleStatement(Statement st) throws RDFHandlerException {
+        OWLAxiom axiom = translate(st);
+        if (axiom == null) {
+            writeResidual(st);
+        } else {
+            loader.add(axiom);
+        }
+        load.statementHandled(axiom != null);
+    }
+
+    @Override
+    public void endRDF() throws RDFHandlerException {
+        if (residualWriter != null) {
+            residualWriter.endRDF();
+            try {
+                residualOut.close();
+            } catch (IOException e) {
+                throw new RDFHandlerException(e);
+            }
+        }
+    }
+
+    private void writeResidual(Statement st) throws RDFHandlerException {
+        if (residualWriter == null) {
+            try {
+                residual = Files.createTempFile("streaming-residual", ".rdf");
+                residualOut = new BufferedOutputStream(Files.newOutputStream(residual));
+            } catch (IOException e) {
+                throw new RDFHandlerException(e);
+            }
+            residualWriter = Rio.createWriter(RDFFormat.RDFXML, residualOut);
+            residualWriter.startRDF();
+        }
+        residualWriter.handleStatement(st);
+    }
+
+    private OWLAxiom translate(Statement st) {
+        if (!(st.getSubject() instanceof URI)) {
+            return null;
+        }
+        IRI subject = IRI.create(st.getSubject().stringValue());
+        // the ontology header is the residual parser's business, annotations included
+        if (ontologies.contains(subject.toString())) {
+            return null;
+        }
+        String predicate = st.getPredicate().stringValue();
+        Value object = st.getObject();
+
+        if (object instanceof Literal) {
+            if (!isProperty(dataProperties, predicate)) {
+                return null;
+            }
+            return df.getOWLDataPropertyAssertionAxiom(df.getOWLDataProperty(IRI.create(predicate)),
+                    df.getOWLNamedIndividual(subject), literal((Literal) object));
+        }
+        if (!(object instanceof URI)) {
+            return null;
+        }
+        IRI target = IRI.create(object.stringValue());
+
+        if (RDF_TYPE.equals(predicate)) {
+            String type = object.stringValue();
+            if (!isVocabulary(type)) {
+                return df.getOWLClassAssertionAxiom(df.getOWLClass(target), df.getOWLNamedIndividual(subject));
+            }
+            return declaration(subject, type);
+        }
+        if (SUBCLASS_OF.equals(predicate)) {
+            return df.getOWLSubClassOfAxiom(df.getOWLClass(subject), df.getOWLClass(target));
+        }
+        if (DISJOINT_WITH.equals(predicate)) {
+            return df.getOWLDisjointClassesAxiom(df.getOWLClass(subject), df.getOWLClass(target));
+        }
+        if (!isProperty(objectProperties, predicate)) {
+            return null;
+        }
+        return df.getOWLObjectPropertyAssertionAxiom(df.getOWLObjectProperty(IRI.create(predicate)),
+                df.getOWLNamedIndividual(subject), df.getOWLNamedIndividual(target));
+    }
+
+    /**
+     * Typing triples. Individual declarations can be committed directly; class and property
+     * declarations go to the residual parser, which needs them to make sense of the blank-node
+     * structures it gets. Properties and ontologies are noted, so later triples can be told apart.
+     */
+    private OWLAxiom declaration(IRI subject, String type) {
+        if (ANNOTATION_PROPERTY.equals(type)) {
+            annotationProperties.add(subject.toString());
+        } else if (OBJECT_PROPERTY.equals(type)) {
+            objectProperties.add(subject.toString());
+        } else if (DATA_PROPERTY.equals(type)) {
+            dataProperties.add(subject.toString());
+        } else if (ONTOLOGY.equals(type)) {
+            ontologies.add(subject.toString());
+        } else if (NAMED_INDIVIDUAL.equals(type)) {
+            return df.getOWLDeclarationAxiom(df.getOWLNamedIndividual(subject));
+        }
+        return null;
+    }
+
+    private OWLLiteral literal(Literal literal) {
+        String lang = literal.getLanguage();
+        if (lang != null && !lang.isEmpty()) {
+            return df.getOWLLiteral(literal.getLabel(), lang);
+        }
+        if (literal.getDatatype() == null) {
+            return df.getOWLLiteral(literal.getLabel());
+        }
+        return df.getOWLLiteral(literal.getLabel(), df.getOWLDatatype(IRI.create(literal.getDatatype().stringValue())));
+    }
+
+    private boolean isProperty(Set<String> declared, String predicate) {
+        return declared.contains(predicate) && !annotationProperties.contains(predicate);
+    }
+
+    private static boolean isVocabulary(String iri) {
+        for (String vocabulary : VOCABULARIES) {
+            if (iri.startsWith(vocabulary)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,297 @@
+package com.autumncode.owlapi.ontology;
+
+import org.semanticweb.owlapi.model.*;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * Secondary indexes over the axiom shapes the helper builds, kept up to date as changes are
+ * applied.
+ *
+ * <ul>
+ * <li>property &rarr; restriction holders, and filler &rarr; restriction holders, from
+ * <code>A SubClassOf P some C</code> (what
+ * {@link OntologyHelper#associateObjectPropertyWithClass} produces; restrictions inside an
+ * intersection are indexed too)</li>
+ * <li>class &rarr; disjoint classes, from {@link OntologyHelper#addDisjointClass} (in both
+ * directions, since disjointness is symmetric)</li>
+ * <li>individual &rarr; object and data property assertions</li>
+ * </ul>
+ *
+ * <p>Without it, these questions mean scanning <code>getAxioms()</code> or
+ * <code>getSubClassAxiomsForSubClass()</code> and unpacking class expressions every time.
+ * Adding an entry twice is harmless, so a change the index has already seen (one applied while
+ * it was being built, say) can arrive again. When an axiom is removed, its entries are only
+ * dropped if no other axiom in the ontology still states them, so a pair stated by two axioms
+ * survives the removal of one of them.</p>
+ *
+ * <p>Queries return lazy streams over concurrent collections: they don't copy anything, and a
+ * stream consumed while changes are being applied may or may not see them. A rebuild fills new
+ * collections and swaps them in, so queries never see a half-built index. Updates arrive through
+ * the manager's change listener; a {@link BulkLoader} that doesn't notify listeners reports the
+ * reload when it finishes, and the index rebuilds. Only the ontology's own axioms are indexed, not
+ * its imports.</p>
+ */
+public class StructuralIndex implements AutoCloseable {
+    private final OntologyHelper helper;
+    private final OWLOntology ontology;
+    private final OWLOntologyChangeListener listener = this::changed;
+    private final Consumer<OWLOntology> reloadListener = this::reloaded;
+    private volatile Indexes indexes = new Indexes();
+
+    StructuralIndex(OntologyHelper helper, OWLOntology ontology) {
+        this.helper = helper;
+        this.ontology = ontology;
+        // listening before the build means no change is missed
+        synchronized (this) {
+            ontology.getOWLOntologyManager().addOntologyChangeListener(listener);
+            helper.reloadListeners.add(reloadListener);
+            rebuild();
+        }
+    }
+
+    public OWLOntology getOntology() {
+        return ontology;
+    }
+
+    /**
+     * @param property an object property
+     * @return every class that is a subclass of <code>property some X</code>, for any X
+     */
+    public Stream<OWLClass> getRestrictionHolders(OWLObjectPropertyExpression property) {
+        return elements(indexes.holdersByProperty.get(property));
+    }
+
+    /**
+     * @param property an object property
+     * @param filler   the class the property points to
+     * @return every class that is a subclass of <code>property some filler</code>
+     */
+    public Stream<OWLClass> getRestrictionHolders(OWLObjectPropertyExpression property, OWLClassExpression filler) {
+        return elements(indexes.holdersByRestriction.get(helper.df.getOWLObjectSomeValuesFrom(property, filler)));
+    }
+
+    /**
+     * @param filler a class
+     * @return every class that is a subclass of <code>P some filler</code>, for any P
+     */
+    public Stream<OWLClass> getRestrictionHoldersForFiller(OWLClassExpression filler) {
+        return elements(indexes.holdersByFiller.get(filler));
+    }
+
+    /**
+     * @param clazz a class
+     * @return every class asserted (not inferred) to be disjoint with it
+     */
+    public Stream<OWLClass> getDisjointClasses(OWLClass clazz) {
+        return elements(indexes.disjointClasses.get(clazz));
+    }
+
+    public boolean isDisjoint(OWLClass a, OWLClass b) {
+        Set<OWLClass> disjoint = indexes.disjointClasses.get(a);
+        return disjoint != null && disjoint.contains(b);
+    }
+
+    /**
+     * @param individual an individual
+     * @return every object and data property assertion with the individual as its subject
+     */
+    public Stream<OWLPropertyAssertionAxiom<?, ?>> getPropertyAssertions(OWLIndividual individual) {
+        return elements(indexes.assertionsBySubject.get(individual));
+    }
+
+    /**
+     * @param individual an individual
+     * @param property   an object property
+     * @return the individuals the property points to from this one
+     */
+    public Stream<OWLIndividual> getObjectPropertyValues(OWLIndividual individual, OWLObjectPropertyExpression property) {
+        return getPropertyAssertions(individual)
+                .filter(ax -> ax instanceof OWLObjectPropertyAssertionAxiom && ax.getProperty().equals(property))
+                .map(ax -> ((OWLObjectPropertyAssertionAxiom) ax).getObject());
+    }
+
+    /**
+     * @param individual an individual
+     * @param property   a data property
+     * @return the literals the property holds for this individual
+     */
+    public Stream<OWLLiteral> getDataPropertyValues(OWLIndividual individual, OWLDataPropertyExpression property) {
+        return getPropertyAssertions(individual)
+                .filter(ax -> ax instanceof OWLDataPropertyAssertionAxiom && ax.getProperty().equals(property))
+                .map(ax -> ((OWLDataPropertyAssertionAxiom) ax).getObject());
+    }
+
+    /**
+     * Builds the indexes again from the ontology's axioms, and swaps them in when they're done.
+     */
+    public synchronized void rebuild() {
+        Indexes fresh = new Indexes();
+        for (OWLSubClassOfAxiom axiom : ontology.getAxioms(AxiomType.SUBCLASS_OF)) {
+            fresh.apply(axiom, true);
+        }
+        for (OWLDisjointClassesAxiom axiom : ontology.getAxioms(AxiomType.DISJOINT_CLASSES)) {
+            fresh.apply(axiom, true);
+        }
+        for (OWLObjectPropertyAssertionAxiom axiom : ontology.getAxioms(AxiomType.OBJECT_PROPERTY_ASSERTION)) {
+            fresh.apply(axiom, true);
+        }
+        for (OWLDataPropertyAssertionAxiom axiom : ontology.getAxioms(AxiomType.DATA_PROPERTY_ASSERTION)) {
+            fresh.apply(axiom, true);
+        }
+        indexes = fresh;
+    }
+
+    /**
+     * Stops following changes to the ontology.
+     */
+    @Override
+    public void close() {
+        ontology.getOWLOntologyManager().removeOntologyChangeListener(listener);
+        helper.reloadListeners.remove(reloadListener);
+    }
+
+    private static <T> Stream<T> elements(Set<T> set) {
+        return set == null ? Stream.empty() : set.stream();
+    }
+
+    private synchronized void changed(List<? extends OWLOntologyChange> changes) {
+        for (OWLOntologyChange change : changes) {
+            if (change.getOntology() == ontology && change.isAxiomChange()) {
+                indexes.apply(change.getAxiom(), change.isAddAxiom());
+            }
+        }
+    }
+
+    private void reloaded(OWLOntology o) {
+        if (o == ontology) {
+            rebuild();
+        }
+    }
+
+    private static <K, V> void add(Map<K, Set<V>> index, K key, V value) {
+        index.computeIfAbsent(key, k -> ConcurrentHashMap.newKeySet()).add(value);
+    }
+
+    private static <K, V> void remove(Map<K, Set<V>> index, K key, V value) {
+        Set<V> values = index.get(key);
+        if (values != null && values.remove(value) && values.isEmpty()) {
+            index.remove(key);
+        }
+    }
+
+    /**
+     * One generation of the indexes. Changes go to the current one; a rebuild fills a new one.
+     */
+    private final class Indexes {
+        final Map<OWLObjectPropertyExpression, Set<OWLClass>> holdersByProperty = new ConcurrentHashMap<>();
+        final Map<OWLClassExpression, Set<OWLClass>> holdersByFiller = new ConcurrentHashMap<>();
+        final Map<OWLObjectSomeValuesFrom, Set<OWLClass>> holdersByRestriction = new ConcurrentHashMap<>();
+        final Map<OWLClass, Set<OWLClass>> disjointClasses = new ConcurrentHashMap<>();
+        final Map<OWLIndividual, Set<OWLPropertyAssertionAxiom<?, ?>>> assertionsBySubject = new ConcurrentHashMap<>();
+
+        void apply(OWLAxiom axiom, boolean added) {
+            if (axiom instanceof OWLSubClassOfAxiom) {
+                OWLSubClassOfAxiom ax = (OWLSubClassOfAxiom) axiom;
+                if (!ax.getSubClass().isAnonymous()) {
+                    restrictions(ax.getSubClass().asOWLClass(), ax.getSuperClass(), added);
+                }
+            } else if (axiom instanceof OWLDisjointClassesAxiom) {
+                Set<OWLClass> named = namedOperands((OWLDisjointClassesAxiom) axiom);
+                for (OWLClass a : named) {
+                    Set<OWLClass> stillDisjoint = added ? null : stillDisjoint(a);
+                    for (OWLClass b : named) {
+                        if (a.equals(b)) {
+                            continue;
+                        }
+                        if (added) {
+                            add(disjointClasses, a, b);
+                        } else if (!stillDisjoint.contains(b)) {
+                            remove(disjointClasses, a, b);
+                        }
+                    }
+                }
+            } else if (axiom instanceof OWLObjectPropertyAssertionAxiom || axiom instanceof OWLDataPropertyAssertionAxiom) {
+                OWLPropertyAssertionAxiom<?, ?> ax = (OWLPropertyAssertionAxiom<?, ?>) axiom;
+                if (added) {
+                    add(assertionsBySubject, ax.getSubject(), ax);
+                } else {
+                    remove(assertionsBySubject, ax.getSubject(), ax);
+                }
+            }
+        }
+
+        private void restrictions(OWLClass holder, OWLClassExpression superClass, boolean added) {
+            Set<OWLObjectSomeValuesFrom> remaining = added ? null : remainingRestrictions(holder);
+            for (OWLClassExpression conjunct : superClass.asConjunctSet()) {
+                if (!(conjunct instanceof OWLObjectSomeValuesFrom)) {
+                    continue;
+                }
+                OWLObjectSomeValuesFrom restriction = (OWLObjectSomeValuesFrom) conjunct;
+                if (added) {
+                    add(holdersByRestriction, restriction, holder);
+                    add(holdersByProperty, restriction.getProperty(), holder);
+                    add(holdersByFiller, restriction.getFiller(), holder);
+                    continue;
+                }
+                if (!remaining.contains(restriction)) {
+                    remove(holdersByRestriction, restriction, holder);
+                }
+                if (remaining.stream().noneMatch(r -> r.getProperty().equals(restriction.getProperty()))) {
+                    remove(holdersByProperty, restriction.getProperty(), holder);
+                }
+                if (remaining.stream().noneMatch(r -> r.getFiller().equals(restriction.getFiller()))) {
+                    remove(holdersByFiller, restriction.getFiller(), holder);
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the restrictions the ontology still states for a class, as of now
+     */
+    private Set<OWLObjectSomeValuesFrom> remainingRestrictions(OWLClass holder) {
+        Set<OWLObjectSomeValuesFrom> remaining = new HashSet<>();
+        for (OWLSubClassOfAxiom axiom : ontology.getSubClassAxiomsForSubClass(holder)) {
+            for (OWLClassExpression conjunct : axiom.getSuperClass().asConjunctSet()) {
+                if (conjunct instanceof OWLObjectSomeValuesFrom) {
+                    remaining.add((OWLObjectSomeValuesFrom) conjunct);
+                }
+            }
+        }
+        return remaining;
+    }
+
+    /**
+     * @return the classes the ontology still states to be disjoint with a class, as of now
+     */
+    private Set<OWLClass> stillDisjoint(OWLClass clazz) {
+        Set<OWLClass> disjoint = new HashSet<>();
+        for (OWLDisjointClassesAxiom axiom : ontology.getDisjointClassesAxioms(clazz)) {
+            Set<OWLClass> named = namedOperands(axiom);
+            if (named.contains(clazz)) {
+                disjoint.addAll(named);
+            }
+        }
+        return disjoint;
+    }
+
+    /**
+     * Only the named operands; a class inside a restriction isn't disjoint with anything.
+     */
+    private static Set<OWLClass> namedOperands(OWLDisjointClassesAxiom axiom) {
+        Set<OWLClass> named = new HashSet<>();
+        for (OWLClassExpression operand : axiom.getClassExpressions()) {
+            if (!operand.isAnonymous()) {
+                named.add(operand.asOWLClass());
+            }
+        }
+        return named;
+    }
+}
@@ -0,0 +1,216 @@
+package com.autumncode.owlapi.ontology;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import org.semanticweb.owlapi.model.OWLAxiom;
+import org.semanticweb.owlapi.model.OWLOntology;
+import org.semanticweb.owlapi.model.OWLOntologyChange;
+
+import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * The single-writer queue for one ontology.
+ *
+ * <p>Threads that want to change the ontology enqueue their changes and then try to become the
+ * writer. Whoever gets the lock drains everything queued so far and applies it, so under
+ * contention one thread applies many callers' changes in a row instead of every caller waiting
+ * its turn for the lock. Callers that didn't get the lock wait for their batch to be applied.</p>
+ *
+ * <p>Once someone has asked for a snapshot, the writer also records each batch's changes as a
+ * numbered delta. Readers build new snapshots from the last published one plus the deltas after
+ * it, without taking the writer lock.</p>
+ */
+class WriteLane {
+    /**
+     * Once this many changes are waiting in deltas, the writer folds them into a snapshot itself
+     * rather than letting them pile up until the next read.
+     */
+    static final int COMPACT_THRESHOLD = 100_000;
+
+    interface Applier {
+        void apply(OWLOntology o, List<OWLOntologyChange> changes, boolean notifyListeners);
+    }
+
+    private final OWLOntology ontology;
+    private final Applier applier;
+    private final ReentrantLock writer = new ReentrantLock();
+    private final ConcurrentLinkedQueue<PendingWrite> queue = new ConcurrentLinkedQueue<>();
+    private final ConcurrentLinkedQueue<Delta> deltas = new ConcurrentLinkedQueue<>();
+    private final AtomicReference<OntologySnapshot> published = new AtomicReference<>();
+    private final AtomicLong pendingDeltaChanges = new AtomicLong();
+    private long version;
+
+    WriteLane(OWLOntology ontology, Applier applier) {
+        this.ontology = ontology;
+        this.applier = applier;
+    }
+
+    CompletableFuture<Void> submit(List<? extends OWLOntologyChange> changes, boolean notifyListeners) {
+        PendingWrite write = new PendingWrite(ImmutableList.copyOf(changes), notifyListeners);
+        queue.add(write);
+        drain();
+        return write.done;
+    }
+
+    /**
+     * Runs something with the writer lock held, so nothing else changes the ontology meanwhile.
+     */
+    <T> T exclusively(Callable<T> action) throws Exception {
+        writer.lock();
+        try {
+            return action.call();
+        } finally {
+            writer.unlock();
+            drain();
+        }
+    }
+
+    private void drain() {
+        while (!queue.isEmpty() && writer.tryLock()) {
+            try {
+                List<PendingWrite> batch = new ArrayList<>();
+                for (PendingWrite write = queue.poll(); write != null; write = queue.poll()) {
+                    batch.add(write);
+                }
+                apply(batch);
+            } finally {
+                writer.unlock();
+            }
+        }
+    }
+
+    /**
+     * Applies a drained batch, combining consecutive writes that agree on notification.
+     * Called with the writer lock held.
+     */
+    private void apply(List<PendingWrite> batch) {
+        List<OWLOntologyChange> applied = new ArrayList<>();
+        int start = 0;
+        while (start < batch.size()) {
+            boolean notify = batch.get(start).notifyListeners;
+            int end = start;
+            List<OWLOntologyChange> run = new ArrayList<>();
+            while (end < batch.size() && batch.get(end).notifyListeners == notify) {
+                run.addAll(batch.get(end).changes);
+                end++;
+            }
+            try {
+                applier.apply(ontology, run, notify);
+                applied.addAll(run);
+            } catch (RuntimeException e) {
+                for (int i = start; i < end; i++) {
+                    batch.get(i).done.completeExceptionally(e);
+                }
+            }
+            start = end;
+        }
+        // the delta goes in before anyone is told their write is done, so a caller's next
+        // snapshot is guaranteed to see it
+        if (published.get() != null && !applied.isEmpty()) {
+            deltas.add(new Delta(++version, applied));
+            if (pendingDeltaChanges.addAndGet(applied.size()) > COMPACT_THRESHOLD) {
+                snapshot();
+            }
+        }
+        for (PendingWrite write : batch) {
+            write.done.complete(null);
+        }
+    }
+
+    /**
+     * Returns a snapshot that includes every batch applied before the call. The first call
+     * takes the writer lock to copy the ontology; after that, snapshots are built from deltas.
+     */
+    OntologySnapshot snapshot() {
+        if (published.get() == null) {
+            writer.lock();
+            try {
+                if (published.get() == null) {
+                    published.set(new OntologySnapshot(ontology, version, ImmutableSet.copyOf(ontology.getAxioms())));
+                }
+            } finally {
+                writer.unlock();
+                // writers that queued while we held the lock are waiting for someone to apply them
+                drain();
+            }
+        }
+        while (true) {
+            OntologySnapshot base = published.get();
+            long next = base.getVersion() + 1;
+            List<Delta> pending = new ArrayList<>();
+            boolean pruned = false;
+            for (Delta delta : deltas) {
+                if (delta.version < next) {
+                    continue;
+                }
+                if (delta.version > next) {
+                    // someone published past our base and pruned the deltas in between
+                    pruned = true;
+                    break;
+                }
+                pending.add(delta);
+                next++;
+            }
+            if (pruned) {
+                continue;
+            }
+            if (pending.isEmpty()) {
+                return base;
+            }
+            Set<OWLAxiom> axioms = new HashSet<>(base.getAxioms());
+            for (Delta delta : pending) {
+                for (OWLOntologyChange change : delta.changes) {
+                    if (change.isAddAxiom()) {
+                        axioms.add(change.getAxiom());
+                    } else if (change.isRemoveAxiom()) {
+                        axioms.remove(change.getAxiom());
+                    }
+                }
+            }
+            OntologySnapshot snapshot = new OntologySnapshot(ontology, next - 1, ImmutableSet.copyOf(axioms));
+            if (published.compareAndSet(base, snapshot)) {
+                prune(snapshot.getVersion());
+                return snapshot;
+            }
+            OntologySnapshot newer = published.get();
+            if (newer.getVersion() >= snapshot.getVersion()) {
+                return newer;
+            }
+        }
+    }
+
+    private void prune(long upTo) {
+        for (Delta head = deltas.peek(); head != null && head.version <= upTo; head = deltas.peek()) {
+            if (deltas.remove(head)) {
+                pendingDeltaChanges.addAndGet(-head.changes.size());
+            }
+        }
+    }
+
+    private static class PendingWrite {
+        final List<OWLOntologyChange> changes;
+        final boolean notifyListeners;
+        final CompletableFuture<Void> done = new CompletableFuture<>();
+
+        PendingWrite(List<OWLOntologyChange> changes, boolean notifyListeners) {
+            this.changes = changes;
+            this.notifyListeners = notifyListeners;
+        }
+    }
+
+    private static class Delta {
+        final long version;
+        final List<OWLOntologyChange> changes;
+
+        Delta(long version, List<OWLOntologyChange> changes) {
+            this.version = version;
+            this.changes = changes;
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package com.autumncode.owlapi.ontology;
+
+import org.semanticweb.owlapi.model.*;
+import org.testng.annotations.Test;
+
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+public class BulkLoaderTest {
+    private static final String NS = "http://autumncode.com/ontologies/terminator.owl#";
+
+    @Test
+    public void bulkLoadStream() throws OWLOntologyCreationException {
+        OntologyHelper oh = new OntologyHelper();
+        OWLOntology o = oh.createOntology("http://autumncode.com/ontologies/terminator.owl");
+        OWLClass robot = oh.createClass(NS + "Robot");
+        OWLDataFactory df = o.getOWLOntologyManager().getOWLDataFactory();
+
+        Stream<OWLAxiom> facts = IntStream.range(0, 2500)
+                .mapToObj(i -> df.getOWLClassAssertionAxiom(robot, oh.createIndividual(NS + "t" + i)));
+        BulkLoadStatistics stats = oh.bulkLoader(o, 1000, false).addAxioms(facts).finish();
+
+        assertEquals(stats.getAxioms(), 2500);
+        assertEquals(stats.getChunks(), 3);
+        assertEquals(o.getClassAssertionAxioms(robot).size(), 2500);
+        assertTrue(stats.getAxiomsPerSecond() > 0);
+    }
+
+    @Test
+    public void bulkLoadHelperChanges() throws OWLOntologyCreationException {
+        OntologyHelper oh = new OntologyHelper();
+        OWLOntology o = oh.createOntology("http://autumncode.com/ontologies/terminator.owl");
+        OWLClass person = oh.createClass(NS + "Person");
+        OWLClass robot = oh.createClass(NS + "Robot");
+        OWLClass terminator = oh.createClass(NS + "Terminator");
+
+        try (BulkLoader loader = oh.bulkLoader(o, 2, true)) {
+            loader.add(oh.createSubclass(o, terminator, person))
+                    .add(oh.createSubclass(o, terminator, robot))
+                    .add(oh.associateIndividualWithClass(o, terminator, oh.createIndividual(NS + "T800")));
+        }
+        assertEquals(o.getSubClassAxiomsForSubClass(terminator).size(), 2);
+        assertEquals(o.getClassAssertionAxioms(terminator).size(), 1);
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void rejectsChangesForOtherOntologies() throws OWLOntologyCreationException {
+        OntologyHelper oh = new OntologyHelper();
+        OWLOntology o = oh.createOntology("http://autumncode.com/ontologies/terminator.owl");
+        OWLOntology other = oh.createOntology("http://autumncode.com/ontologies/person.owl");
+        oh.bulkLoader(o).add(oh.createSubclass(other, oh.createClass(NS + "A"), oh.createClass(NS + "B")));
+    }
+}
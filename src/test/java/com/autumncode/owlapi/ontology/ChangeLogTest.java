@@ -0,0 +1,104 @@
+package com.autumncode.owlapi.ontology;
+
+import org.semanticweb.owlapi.model.*;
+import org.testng.annotations.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.IntStream;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+public class ChangeLogTest {
+    private static final String NS = "http://autumncode.com/ontologies/terminator.owl#";
+
+    @Test
+    public void replaysLoggedChanges() throws Exception {
+        Path directory = Files.createTempDirectory("changelog");
+        OntologyHelper oh = new OntologyHelper();
+        OWLOntology o = oh.createOntology("http://autumncode.com/ontologies/terminator.owl");
+        OWLClass person = oh.createClass(NS + "Person");
+        OWLClass robot = oh.createClass(NS + "Robot");
+        OWLClass terminator = oh.createClass(NS + "Terminator");
+        oh.applyChange(oh.createSubclass(o, terminator, robot));
+
+        try (ChangeLog log = oh.recordChanges(o, directory)) {
+            OWLAxiomChange human = oh.createSubclass(o, terminator, person);
+            OWLDataFactory df = o.getOWLOntologyManager().getOWLDataFactory();
+            oh.applyChange(human, oh.associateIndividualWithClass(o, terminator, oh.createIndividual(NS + "T800")));
+            oh.applyChange(new AddAxiom(o, df.getOWLSubClassOfAxiom(terminator,
+                    df.getOWLObjectIntersectionOf(person, robot))));
+            oh.applyChange(new RemoveAxiom(o, human.getAxiom()));
+            log.checkpoint();
+            assertTrue(log.size() > 0);
+        }
+
+        ChangeLog reopened = new OntologyHelper().openChangeLog(directory);
+        assertEquals(reopened.getReplayedChanges(), 4);
+        assertEquals(reopened.getOntology().getAxioms(), o.getAxioms());
+        reopened.close();
+    }
+
+    @Test
+    public void compactsAfterBulkLoad() throws Exception {
+        Path directory = Files.createTempDirectory("changelog");
+        OntologyHelper oh = new OntologyHelper();
+        OWLOntology o = oh.createOntology("http://autumncode.com/ontologies/terminator.owl");
+        OWLClass robot = oh.createClass(NS + "Robot");
+        OWLDataFactory df = o.getOWLOntologyManager().getOWLDataFactory();
+
+        try (ChangeLog log = oh.recordChanges(o, directory)) {
+            oh.bulkLoad(o, IntStream.range(0, 1000)
+                    .mapToObj(i -> df.getOWLClassAssertionAxiom(robot, oh.createIndividual(NS + "t" + i))));
+            oh.applyChange(oh.associateIndividualWithClass(o, robot, oh.createIndividual(NS + "T1000")));
+        }
+
+        ChangeLog reopened = new OntologyHelper().openChangeLog(directory);
+        assertEquals(reopened.getReplayedChanges(), 1);
+        assertEquals(reopened.getOntology().getAxiomCount(), 1001);
+        reopened.close();
+    }
+
+    @Test
+    public void removingResidualAxiomKeepsDeclarations() throws Exception {
+        Path directory = Files.createTempDirectory("changelog");
+        OntologyHelper oh = new OntologyHelper();
+        OWLOntology o = oh.createOntology("http://autumncode.com/ontologies/terminator.owl");
+        OWLDataFactory df = o.getOWLOntologyManager().getOWLDataFactory();
+        OWLClass robot = oh.createClass(NS + "Robot");
+        OWLObjectProperty controls = oh.createObjectProperty(NS + "controls");
+        oh.applyChange(new AddAxiom(o, df.getOWLDeclarationAxiom(robot)),
+                new AddAxiom(o, df.getOWLDeclarationAxiom(controls)));
+
+        try (ChangeLog log = oh.recordChanges(o, directory)) {
+            OWLAxiom residual = df.getOWLSubClassOfAxiom(robot, df.getOWLObjectAllValuesFrom(controls, robot));
+            oh.applyChange(new AddAxiom(o, residual));
+            oh.applyChange(new RemoveAxiom(o, residual));
+        }
+
+        ChangeLog reopened = new OntologyHelper().openChangeLog(directory);
+        assertEquals(reopened.getReplayedChanges(), 2);
+        assertEquals(reopened.getOntology().getAxioms(), o.getAxioms());
+        reopened.close();
+    }
+
+    @Test
+    public void rotatesInTheBackground() throws Exception {
+        Path directory = Files.createTempDirectory("changelog");
+        OntologyHelper oh = new OntologyHelper();
+        OWLOntology o = oh.createOntology("http://autumncode.com/ontologies/terminator.owl");
+        OWLClass robot = oh.createClass(NS + "Robot");
+
+        // a one-byte threshold rotates after every change
+        try (ChangeLog log = ChangeLog.record(oh, o, directory, 1)) {
+            for (int i = 0; i < 50; i++) {
+                oh.applyChange(oh.associateIndividualWithClass(o, robot, oh.createIndividual(NS + "t" + i)));
+            }
+        }
+
+        ChangeLog reopened = new OntologyHelper().openChangeLog(directory);
+        assertEquals(reopened.getOntology().getAxioms(), o.getAxioms());
+        reopened.close();
+    }
+}
@@ -0,0 +1,166 @@
+package com.autumncode.owlapi.ontology;
+
+import org.semanticweb.owlapi.model.*;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+public class ConcurrentOntologyHelperTest {
+    private static final String NS = "http://autumncode.com/ontologies/terminator.owl#";
+    private static final int WRITES = 2000;
+
+    @Test
+    public void concurrentWritersAndSnapshots() throws Exception {
+        int threads = Math.max(4, Runtime.getRuntime().availableProcessors());
+        ConcurrentOntologyHelper oh = new ConcurrentOntologyHelper();
+        OWLOntology shared = oh.createOntology("http://autumncode.com/ontologies/terminator.owl");
+        OWLClass robot = oh.createClass(NS + "Robot");
+
+        ExecutorService pool = Executors.newFixedThreadPool(threads + 1);
+        AtomicBoolean writing = new AtomicBoolean(true);
+        Future<Integer> reader = pool.submit(() -> {
+            int snapshots = 0;
+            long version = -1;
+            int size = 0;
+            while (writing.get()) {
+                OntologySnapshot snapshot = oh.snapshot(shared);
+                assertTrue(snapshot.getVersion() >= version);
+                assertTrue(snapshot.getAxiomCount() >= size);
+                version = snapshot.getVersion();
+                size = snapshot.getAxiomCount();
+                snapshots++;
+            }
+            return snapshots;
+        });
+
+        List<Future<OWLOntology>> writers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            int thread = t;
+            writers.add(pool.submit(() -> {
+                OWLOntology own = oh.createOntology("http://autumncode.com/ontologies/t" + thread + ".owl");
+                for (int i = 0; i < WRITES; i++) {
+                    OWLIndividual individual = oh.createIndividual(NS + "t" + thread + "-" + i);
+                    oh.applyChange(oh.associateIndividualWithClass(shared, robot, individual),
+                            oh.associateIndividualWithClass(own, robot, individual));
+                }
+                return own;
+            }));
+        }
+        for (Future<OWLOntology> writer : writers) {
+            assertEquals(writer.get(60, TimeUnit.SECONDS).getClassAssertionAxioms(robot).size(), WRITES);
+        }
+        writing.set(false);
+        assertTrue(reader.get(60, TimeUnit.SECONDS) > 0);
+        pool.shutdown();
+
+        assertEquals(shared.getClassAssertionAxioms(robot).size(), threads * WRITES);
+        assertEquals(oh.snapshot(shared).getAxiomCount(), shared.getAxiomCount());
+    }
+
+    @Test(timeOut = 30_000)
+    public void changesInsideExclusivelyAreRejected() throws Exception {
+        ConcurrentOntologyHelper oh = new ConcurrentOntologyHelper();
+        OWLOntology o = oh.createOntology("http://autumncode.com/ontologies/terminator.owl");
+        OWLAxiomChange t800 = oh.associateIndividualWithClass(o, oh.createClass(NS + "Robot"), oh.createIndividual(NS + "T800"));
+        try {
+            oh.exclusively(() -> {
+                oh.applyChange(t800);
+                return null;
+            });
+            fail("applied a change while holding the manager to itself");
+        } catch (IllegalStateException expected) {
+            // rejected rather than left waiting for the lane
+        }
+        oh.applyChange(t800);
+        assertEquals(o.getAxiomCount(), 1);
+    }
+
+    @Test
+    public void snapshotIsImmutable() throws OWLOntologyCreationException {
+        ConcurrentOntologyHelper oh = new ConcurrentOntologyHelper();
+        OWLOntology o = oh.createOntology("http://autumncode.com/ontologies/terminator.owl");
+        OWLClass person = oh.createClass(NS + "Person");
+        OWLClass terminator = oh.createClass(NS + "Terminator");
+        OWLAxiomChange subclass = oh.createSubclass(o, terminator, person);
+        oh.applyChange(subclass);
+
+        OntologySnapshot before = oh.snapshot(o);
+        oh.applyChange(new RemoveAxiom(o, subclass.getAxiom()));
+        OntologySnapshot after = oh.snapshot(o);
+
+        assertTrue(before.containsAxiom(subclass.getAxiom()));
+        assertEquals(after.getAxiomCount(), 0);
+        assertTrue(after.getVersion() > before.getVersion());
+    }
+
+    @Test
+    public void firstSnapshotDoesNotStrandWriters() throws Exception {
+        int threads = Math.max(4, Runtime.getRuntime().availableProcessors());
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        for (int round = 0; round < 50; round++) {
+            ConcurrentOntologyHelper oh = new ConcurrentOntologyHelper();
+            OWLOntology o = oh.createOntology("http://autumncode.com/ontologies/terminator.owl");
+            OWLClass robot = oh.createClass(NS + "Robot");
+            int current = round;
+            List<Callable<Void>> writers = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                int thread = t;
+                writers.add(() -> {
+                    for (int i = 0; i < 100; i++) {
+                        oh.applyChange(oh.associateIndividualWithClass(o, robot,
+                                oh.createIndividual(NS + "t" + current + "-" + thread + "-" + i)));
+                    }
+                    return null;
+                });
+            }
+            List<Future<Void>> running = new ArrayList<>();
+            for (Callable<Void> writer : writers) {
+                running.add(pool.submit(writer));
+            }
+            oh.snapshot(o);
+            for (Future<Void> writer : running) {
+                // a write queued while the first snapshot held the lock used to wait forever
+                writer.get(30, TimeUnit.SECONDS);
+            }
+            assertEquals(o.getClassAssertionAxioms(robot).size(), threads * 100);
+        }
+        pool.shutdown();
+    }
+
+    @Test
+    public void writersOnSeparateOntologies() throws Exception {
+        int threads = Math.max(4, Runtime.getRuntime().availableProcessors());
+        ConcurrentOntologyHelper oh = new ConcurrentOntologyHelper();
+        OWLClass robot = oh.createClass(NS + "Robot");
+        List<OWLOntology> ontologies = new ArrayList<>();
+        List<Callable<Void>> writers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            OWLOntology o = oh.createOntology("http://autumncode.com/ontologies/terminator" + t + ".owl");
+            ontologies.add(o);
+            int thread = t;
+            writers.add(() -> {
+                for (int i = 0; i < WRITES; i++) {
+                    oh.applyChange(oh.associateIndividualWithClass(o, robot,
+                            oh.createIndividual(NS + "t" + thread + "-" + i)));
+                }
+                return null;
+            });
+        }
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        for (Future<Void> writer : pool.invokeAll(writers)) {
+            writer.get();
+        }
+        pool.shutdown();
+
+        for (OWLOntology o : ontologies) {
+            assertEquals(o.getClassAssertionAxioms(robot).size(), WRITES);
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package com.autumncode.owlapi.ontology;
+
+import org.semanticweb.owlapi.model.*;
+import org.testng.annotations.Test;
+
+import java.util.Arrays;
+import java.util.HashSet;
+
+import static org.testng.Assert.*;
+
+public class ConsistencyCheckTest {
+    private static final String NS = "http://autumncode.com/ontologies/genealogy.owl#";
+
+    private OWLOntology families(OntologyHelper oh, boolean contradiction) throws Exception {
+        OWLOntology o = oh.createOntology("http://autumncode.com/ontologies/genealogy.owl");
+        OWLClass human = oh.createClass(NS + "Human");
+        OWLClass male = oh.createClass(NS + "Male");
+        OWLClass female = oh.createClass(NS + "Female");
+        OWLObjectProperty hasFather = oh.createObjectProperty(NS + "hasFather");
+        oh.applyChange(oh.createSubclass(o, male, human),
+                oh.createSubclass(o, female, human),
+                oh.addDisjointClass(o, female, male));
+
+        OWLIndividual barry = oh.createIndividual(NS + "barry");
+        OWLIndividual thomas = oh.createIndividual(NS + "thomas");
+        OWLIndividual joseph = oh.createIndividual(NS + "joseph");
+        OWLIndividual samuel = oh.createIndividual(NS + "samuel");
+        oh.applyChange(oh.associateIndividualWithClass(o, male, barry),
+                oh.associateIndividualWithClass(o, male, thomas),
+                oh.addObjectproperty(o, thomas, hasFather, barry),
+                oh.associateIndividualWithClass(o, male, joseph),
+                oh.associateIndividualWithClass(o, male, samuel),
+                oh.addObjectproperty(o, samuel, hasFather, joseph));
+        if (contradiction) {
+            oh.applyChange(oh.associateIndividualWithClass(o, female, joseph));
+        }
+        return o;
+    }
+
+    @Test
+    public void consistentFamilies() throws Exception {
+        OntologyHelper oh = new OntologyHelper();
+        ConsistencyReport report = oh.checkConsistency(families(oh, false), 2, 1);
+        assertTrue(report.isConsistent());
+        assertEquals(report.getComponents(), 2);
+        assertEquals(report.getPartitions(), 2);
+    }
+
+    @Test
+    public void inconsistentFamily() throws Exception {
+        OntologyHelper oh = new OntologyHelper();
+        ConsistencyReport report = oh.checkConsistency(families(oh, true));
+        assertFalse(report.isConsistent());
+        // both families fit in one partition, so the culprit is found by re-checking components
+        assertEquals(report.getPartitions(), 1);
+        assertEquals(report.getInconsistencies().size(), 1);
+        ConsistencyReport.Inconsistency inconsistency = report.getInconsistencies().get(0);
+        assertFalse(inconsistency.isTBox());
+        assertEquals(inconsistency.getAxiomCount(), 4);
+        assertEquals(inconsistency.getIndividuals(), new HashSet<>(Arrays.asList(
+                oh.createIndividual(NS + "joseph"), oh.createIndividual(NS + "samuel"))));
+    }
+
+    @Test
+    public void inconsistentTBox() throws Exception {
+        OntologyHelper oh = new OntologyHelper();
+        OWLOntology o = families(oh, false);
+        OWLClass male = oh.createClass(NS + "Male");
+        oh.applyChange(oh.createSubclass(o, male, oh.createClass(NS + "Female")),
+                oh.createSubclass(o, oh.createClass("http://www.w3.org/2002/07/owl#Thing"), male));
+        ConsistencyReport report = oh.checkConsistency(o);
+        assertFalse(report.isConsistent());
+        assertTrue(report.getInconsistencies().get(0).isTBox());
+    }
+
+    @Test
+    public void universalPropertyLinksComponents() throws Exception {
+        OntologyHelper oh = new OntologyHelper();
+        OWLOntology o = families(oh, false);
+        OWLClass male = oh.createClass(NS + "Male");
+        OWLClass female = oh.createClass(NS + "Female");
+        OWLIndividual mary = oh.createIndividual(NS + "mary");
+        // once there's a Male, nothing anywhere may be Female; mary shares no assertion with
+        // the families, so only the universal property ties her to them
+        oh.applyChange(new AddAxiom(o, oh.df.getOWLSubClassOfAxiom(male,
+                        oh.df.getOWLObjectAllValuesFrom(oh.df.getOWLTopObjectProperty(),
+                                oh.df.getOWLObjectComplementOf(female)))),
+                oh.associateIndividualWithClass(o, female, mary));
+        ConsistencyReport report = oh.checkConsistency(o, 2, 1);
+        assertFalse(report.isConsistent());
+        assertEquals(report.getPartitions(), 1);
+        assertTrue(report.getInconsistencies().get(0).getIndividuals().contains(mary));
+    }
+}
@@ -0,0 +1,77 @@
+package com.autumncode.owlapi.ontology;
+
+import org.semanticweb.owlapi.model.*;
+import org.testng.annotations.Test;
+
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.fail;
+
+public class DataAssertionStoreTest {
+    private static final String NS = "http://autumncode.com/ontologies/terminator.owl#";
+
+    @Test
+    public void storeAndQuery() {
+        OntologyHelper oh = new OntologyHelper();
+        OWLDataProperty serial = oh.createDataProperty(NS + "serial");
+        OWLDataProperty active = oh.createDataProperty(NS + "active");
+        OWLDataProperty model = oh.createDataProperty(NS + "model");
+        DataAssertionStore store = oh.dataAssertionStore();
+
+        int[] ids = new int[1000];
+        int[] serials = new int[1000];
+        for (int i = 0; i < ids.length; i++) {
+            OWLIndividual t = oh.createIndividual(NS + "t" + i);
+            ids[i] = store.individualId(t);
+            serials[i] = i * 10;
+            store.add(t, active, i % 2 == 0).add(t, model, i < 800 ? "T-800" : "T-1000");
+        }
+        store.appendInts(serial, ids, serials, ids.length);
+
+        assertEquals(store.size(), 3000);
+        assertEquals(store.individualsInRange(serial, 100, 199).count(), 10);
+        assertEquals(store.individualsWith(active, true).count(), 500);
+        assertEquals(store.individualsWith(model, "T-1000").count(), 200);
+        assertEquals(store.individualsWith(model, "T-X").count(), 0);
+
+        OWLIndividual t42 = oh.createIndividual(NS + "t42");
+        assertEquals(store.getInt(t42, serial).getAsInt(), 420);
+        assertEquals(store.getBoolean(t42, active).get(), Boolean.TRUE);
+        assertEquals(store.getString(t42, model).get(), "T-800");
+        assertFalse(store.getLong(t42, serial).isPresent());
+    }
+
+    @Test
+    public void rejectsShortValueArray() {
+        OntologyHelper oh = new OntologyHelper();
+        OWLDataProperty serial = oh.createDataProperty(NS + "serial");
+        DataAssertionStore store = oh.dataAssertionStore();
+        int[] ids = {store.individualId(oh.createIndividual(NS + "t0")), store.individualId(oh.createIndividual(NS + "t1"))};
+        try {
+            store.appendLongs(serial, ids, new long[1], 2);
+            fail("appended more values than were given");
+        } catch (IllegalArgumentException expected) {
+            assertEquals(store.size(), 0);
+        }
+    }
+
+    @Test
+    public void materialize() throws OWLOntologyCreationException {
+        OntologyHelper oh = new OntologyHelper();
+        OWLOntology o = oh.createOntology("http://autumncode.com/ontologies/terminator.owl");
+        OWLDataProperty serial = oh.createDataProperty(NS + "serial");
+        OWLDataProperty active = oh.createDataProperty(NS + "active");
+        OWLIndividual t800 = oh.createIndividual(NS + "T800");
+
+        oh.dataAssertionStore().add(t800, serial, 800).add(t800, active, true).add(t800, active, true).materialize(o);
+
+        assertEquals(o.getDataPropertyAssertionAxioms(t800),
+                Stream.of(oh.addDataToIndividual(o, t800, serial, 800),
+                        oh.addDataToIndividual(o, t800, active, true))
+                        .map(OWLAxiomChange::getAxiom)
+                        .collect(Collectors.toSet()));
+    }
+}
@@ -0,0 +1,63 @@
+package com.autumncode.owlapi.ontology;
+
+import org.semanticweb.owlapi.apibinding.OWLManager;
+import org.semanticweb.owlapi.model.IRI;
+import org.semanticweb.owlapi.model.OWLClass;
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.*;
+
+public class EntityCacheTest {
+    private static final String NS = "http://autumncode.com/ontologies/person.owl#";
+
+    @Test
+    public void sameStringSameInstance() {
+        OntologyHelper oh = new OntologyHelper();
+        IRI first = oh.convertStringToIRI(NS + "Person");
+        IRI second = oh.convertStringToIRI(NS + "Person");
+        assertSame(first, second);
+        assertEquals(first, IRI.create(NS + "Person"));
+
+        OWLClass person = oh.createClass(NS + "Person");
+        assertSame(oh.createClass(NS + "Person"), person);
+        assertEquals(person.getIRI(), first);
+
+        assertEquals(oh.getEntityCache().getIRIStats().hitCount(), 3);
+        assertEquals(oh.getEntityCache().getIRIStats().missCount(), 1);
+        assertEquals(oh.getEntityCache().getEntityStats().hitCount(), 1);
+    }
+
+    @Test
+    public void sharedBetweenHelpers() {
+        EntityCache cache = new EntityCache();
+        OntologyHelper first = new OntologyHelper(cache);
+        OntologyHelper second = new OntologyHelper(cache);
+        assertSame(first.createObjectProperty(NS + "hasFather"), second.createObjectProperty(NS + "hasFather"));
+    }
+
+    @Test
+    public void namespacesPastTheCapStillHit() {
+        EntityCache cache = new EntityCache();
+        int namespaces = EntityCache.MAX_NAMESPACES + 100;
+        for (int i = 0; i < namespaces; i++) {
+            cache.iri("http://autumncode.com/people/" + i + "/address");
+        }
+        for (int i = 0; i < namespaces; i++) {
+            String iri = "http://autumncode.com/people/" + i + "/address";
+            assertSame(cache.iri(iri), cache.iri(iri));
+            assertEquals(cache.iri(iri), IRI.create(iri));
+        }
+        assertEquals(cache.getIRIStats().missCount(), namespaces);
+    }
+
+    @Test
+    public void evictsWhenFull() {
+        EntityCache cache = new EntityCache(1000, OWLManager.getOWLDataFactory());
+        for (int i = 0; i < 1000; i++) {
+            cache.iri(NS + "individual" + i);
+        }
+        assertTrue(cache.getIRIStats().evictionCount() > 0);
+        // an evicted name still converts to an equal IRI
+        assertEquals(cache.iri(NS + "individual0"), IRI.create(NS + "individual0"));
+    }
+}
@@ -0,0 +1,53 @@
+package com.autumncode.owlapi.ontology;
+
+import org.semanticweb.owlapi.io.StringDocumentSource;
+import org.semanticweb.owlapi.model.OWLClass;
+import org.semanticweb.owlapi.model.OWLOntology;
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.assertEquals;
+
+public class IngestionPipelineTest {
+    private static final String NS = "http://autumncode.com/ontologies/terminator.owl#";
+
+    private static String document(int i) {
+        return "Prefix(:=<" + NS + ">)\n"
+                + "Ontology(<http://autumncode.com/ontologies/part" + i + ".owl>\n"
+                + "Declaration(Class(:Robot))\n"
+                + "Declaration(NamedIndividual(:t" + i + "))\n"
+                + "ClassAssertion(:Robot :t" + i + ")\n"
+                + ")";
+    }
+
+    @Test
+    public void ingestDocuments() throws Exception {
+        OntologyHelper oh = new OntologyHelper();
+        OWLOntology o = oh.createOntology("http://autumncode.com/ontologies/terminator.owl");
+
+        IngestionStatistics stats;
+        try (IngestionPipeline pipeline = oh.ingestionPipeline(o, 4, 2, 100)) {
+            for (int i = 0; i < 50; i++) {
+                pipeline.submit(new StringDocumentSource(document(i)));
+            }
+            pipeline.submit(new StringDocumentSource("Ontology(<http://autumncode.com/broken.owl> ClassAssertion("));
+            stats = pipeline.finish();
+        }
+
+        OWLClass robot = oh.createClass(NS + "Robot");
+        assertEquals(o.getClassAssertionAxioms(robot).size(), 50);
+        assertEquals(stats.getSubmitted(), 51);
+        assertEquals(stats.getCommitted(), 50);
+        assertEquals(stats.getFailures().size(), 1);
+        assertEquals(stats.getFailures().get(0).getStage(), IngestionPipeline.Stage.PARSE);
+        assertEquals(stats.getStage(IngestionPipeline.Stage.CANONICALIZE).getDocuments(), 50);
+    }
+
+    @Test(expectedExceptions = IllegalStateException.class)
+    public void rejectsDocumentsAfterFinish() throws Exception {
+        OntologyHelper oh = new OntologyHelper();
+        OWLOntology o = oh.createOntology("http://autumncode.com/ontologies/terminator.owl");
+        IngestionPipeline pipeline = oh.ingestionPipeline(o);
+        pipeline.finish();
+        pipeline.submit(new StringDocumentSource(document(0)));
+    }
+}
@@ -0,0 +1,112 @@
+package com.autumncode.owlapi.ontology;
+
+import org.semanticweb.owlapi.model.*;
+import org.testng.annotations.Test;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.testng.Assert.*;
+
+public class InstanceIndexTest {
+    private static final String NS = "http://autumncode.com/ontologies/terminator.owl#";
+
+    private static Set<OWLNamedIndividual> set(OWLIndividual... individuals) {
+        Set<OWLNamedIndividual> set = new HashSet<>();
+        for (OWLIndividual individual : individuals) {
+            set.add(individual.asOWLNamedIndividual());
+        }
+        return set;
+    }
+
+    @Test
+    public void terminatorIndividuals() throws Exception {
+        OntologyHelper oh = new OntologyHelper();
+        OWLOntology o = oh.createOntology("http://autumncode.com/ontologies/terminator.owl");
+        OWLClass person = oh.createClass(NS + "Person");
+        OWLClass robot = oh.createClass(NS + "Robot");
+        OWLClass terminator = oh.createClass(NS + "Terminator");
+        OWLClass machine = oh.createClass(NS + "Machine");
+        oh.applyChange(oh.createSubclass(o, terminator, person),
+                oh.createSubclass(o, terminator, robot));
+
+        OWLIndividual sarah = oh.createIndividual(NS + "Sarah");
+        OWLIndividual tank = oh.createIndividual(NS + "Tank");
+        OWLIndividual t800 = oh.createIndividual(NS + "T800");
+        oh.applyChange(oh.associateIndividualWithClass(o, person, sarah),
+                oh.associateIndividualWithClass(o, robot, tank),
+                oh.associateIndividualWithClass(o, terminator, t800));
+
+        try (InstanceIndex index = oh.materializeInstances(o, 2)) {
+            assertEquals(new HashSet<>(index.getInstances(person)), set(sarah, t800));
+            assertEquals(new HashSet<>(index.getInstances(robot)), set(tank, t800));
+            assertEquals(new HashSet<>(index.getInstances(terminator)), set(t800));
+            assertEquals(new HashSet<>(index.getTypes(t800.asOWLNamedIndividual())),
+                    new HashSet<>(Arrays.asList(person, robot, terminator)));
+
+            // a new assertion is patched in with its superclasses
+            OWLIndividual t1000 = oh.createIndividual(NS + "T1000");
+            oh.applyChange(oh.associateIndividualWithClass(o, terminator, t1000));
+            assertTrue(index.isInstance(t1000.asOWLNamedIndividual(), person));
+            assertTrue(index.isInstance(t1000.asOWLNamedIndividual(), robot));
+
+            // so is a new superclass, for every instance below it
+            oh.applyChange(oh.createSubclass(o, robot, machine));
+            assertEquals(new HashSet<>(index.getInstances(machine)), set(tank, t800, t1000));
+
+            // removals are re-queried
+            oh.applyChange(new RemoveAxiom(o, oh.df.getOWLClassAssertionAxiom(terminator, t800)));
+            assertEquals(index.getTypes(t800.asOWLNamedIndividual()).size(), 0);
+            assertEquals(new HashSet<>(index.getInstances(person)), set(sarah, t1000));
+
+            oh.applyChange(new RemoveAxiom(o, oh.df.getOWLSubClassOfAxiom(terminator, person)));
+            assertFalse(index.isInstance(t1000.asOWLNamedIndividual(), person));
+            assertTrue(index.isInstance(t1000.asOWLNamedIndividual(), machine));
+        }
+    }
+
+    @Test
+    public void bulkLoadMarksIndexStale() throws Exception {
+        OntologyHelper oh = new OntologyHelper();
+        OWLOntology o = oh.createOntology("http://autumncode.com/ontologies/terminator.owl");
+        OWLClass robot = oh.createClass(NS + "Robot");
+        OWLIndividual tank = oh.createIndividual(NS + "Tank");
+        oh.applyChange(oh.associateIndividualWithClass(o, robot, oh.createIndividual(NS + "T800")));
+
+        try (InstanceIndex index = oh.materializeInstances(o, 1)) {
+            assertEquals(index.getInstanceCount(robot), 1);
+            oh.bulkLoader(o).add(oh.associateIndividualWithClass(o, robot, tank)).finish();
+            assertTrue(index.isInstance(tank.asOWLNamedIndividual(), robot));
+            assertEquals(index.getInstanceCount(robot), 2);
+        }
+    }
+
+    @Test
+    public void assertionsUnderDefinedClassesAreRequeried() throws Exception {
+        OntologyHelper oh = new OntologyHelper();
+        OWLOntology o = oh.createOntology("http://autumncode.com/ontologies/terminator.owl");
+        OWLClass person = oh.createClass(NS + "Person");
+        OWLClass robot = oh.createClass(NS + "Robot");
+        OWLClass terminator = oh.createClass(NS + "Terminator");
+        OWLClass target = oh.createClass(NS + "Target");
+        OWLObjectProperty hunts = oh.createObjectProperty(NS + "hunts");
+        // Terminator is defined, not just asserted, and whatever a Terminator hunts is a Target
+        oh.applyChange(new AddAxiom(o, oh.df.getOWLEquivalentClassesAxiom(terminator,
+                        oh.df.getOWLObjectIntersectionOf(person, robot))),
+                new AddAxiom(o, oh.df.getOWLSubClassOfAxiom(terminator,
+                        oh.df.getOWLObjectAllValuesFrom(hunts, target))));
+        OWLIndividual t800 = oh.createIndividual(NS + "T800");
+        OWLIndividual sarah = oh.createIndividual(NS + "Sarah");
+        oh.applyChange(oh.addObjectproperty(o, t800, hunts, sarah));
+
+        try (InstanceIndex index = oh.materializeInstances(o, 1)) {
+            assertFalse(index.isInstance(sarah.asOWLNamedIndividual(), target));
+            oh.applyChange(oh.associateIndividualWithClass(o, person, t800),
+                    oh.associateIndividualWithClass(o, robot, t800));
+            assertTrue(index.isInstance(t800.asOWLNamedIndividual(), terminator));
+            // the universal restriction carries a type to another individual
+            assertTrue(index.isInstance(sarah.asOWLNamedIndividual(), target));
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package com.autumncode.owlapi.ontology;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.semanticweb.owlapi.io.StringDocumentTarget;
+import org.semanticweb.owlapi.model.*;
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.assertEquals;
+
+public class InstrumentationTest {
+    private static final String NS = "http://autumncode.com/ontologies/terminator.owl#";
+    private static final String IRI = "http://autumncode.com/ontologies/terminator.owl";
+
+    @Test
+    public void recordsOperations() throws OWLException {
+        OntologyHelper oh = new OntologyHelper();
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        oh.setMeterRegistry(registry);
+
+        OWLOntology o = oh.createOntology(IRI);
+        OWLClass person = oh.createClass(NS + "Person");
+        OWLClass terminator = oh.createClass(NS + "Terminator");
+        OWLAxiomChange subclass = oh.createSubclass(o, terminator, person);
+        oh.applyChange(subclass,
+                oh.associateIndividualWithClass(o, terminator, oh.createIndividual(NS + "T800")));
+        oh.applyChange(new RemoveAxiom(o, subclass.getAxiom()));
+        oh.writeOntology(o, new StringDocumentTarget());
+        oh.getReasonerPool().session(o).isConsistent();
+
+        assertEquals(registry.get("owl.axioms.added").tag("ontology", IRI).counter().count(), 2.0);
+        assertEquals(registry.get("owl.axioms.removed").tag("ontology", IRI).counter().count(), 1.0);
+        assertEquals(registry.get("owl.ontology.axioms").tag("ontology", IRI).gauge().value(), (double) o.getAxiomCount());
+        assertEquals(registry.get("owl.operation").tag("operation", "apply").timer().count(), 2);
+        assertEquals(registry.get("owl.operation").tag("operation", "write").timer().count(), 1);
+        assertEquals(registry.get("owl.operation").tag("kind", "isConsistent").timer().count(), 1);
+        assertEquals(registry.get("owl.reasoner.sessions").gauge().value(), 1.0);
+    }
+
+    @Test
+    public void registryMetersArePerRegistry() {
+        OntologyHelper oh = new OntologyHelper();
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        oh.setMeterRegistry(registry);
+
+        OntologyRegistry first = oh.createRegistry(1000, null);
+        try (OntologyRegistry second = oh.createRegistry(1000, null)) {
+            assertEquals(registry.find("owl.registry.ontologies").gauges().size(), 2);
+            first.close();
+            assertEquals(registry.find("owl.registry.ontologies").gauges().size(), 1);
+        }
+        assertEquals(registry.find("owl.registry.ontologies").gauges().size(), 0);
+    }
+
+    @Test
+    public void stopsWhenRegistryCleared() throws OWLException {
+        OntologyHelper oh = new OntologyHelper();
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        oh.setMeterRegistry(registry);
+        oh.setMeterRegistry(null);
+
+        OWLOntology o = oh.createOntology(IRI);
+        oh.applyChange(oh.createSubclass(o, oh.createClass(NS + "Terminator"), oh.createClass(NS + "Person")));
+        assertEquals(registry.find("owl.operation").timers().size(), 0);
+    }
+}
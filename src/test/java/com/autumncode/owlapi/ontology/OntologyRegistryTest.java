@@ -0,0 +1,210 @@
+package com.autumncode.owlapi.ontology;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.semanticweb.owlapi.io.FileDocumentTarget;
+import org.semanticweb.owlapi.io.IRIDocumentSource;
+import org.semanticweb.owlapi.model.*;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.testng.Assert.*;
+
+public class OntologyRegistryTest {
+    private static final String NS = "http://autumncode.com/ontologies/genealogy.owl#";
+
+    private Path directory;
+
+    /**
+     * Writes a shared ontology with the genealogy classes, and three tenant ontologies that
+     * import it, with three axioms of their own each.
+     */
+    @BeforeClass
+    public void writeOntologies() throws Exception {
+        directory = Files.createTempDirectory("registry");
+        OntologyHelper oh = new OntologyHelper();
+        OWLClass human = oh.createClass(NS + "Human");
+        OWLClass male = oh.createClass(NS + "Male");
+        IRI shared = IRI.create(directory.resolve("shared.owl").toFile());
+        OWLOntology o = oh.createOntology(shared);
+        oh.applyChange(oh.createSubclass(o, male, human));
+        oh.writeOntology(o, new FileDocumentTarget(directory.resolve("shared.owl").toFile()));
+
+        for (int i = 0; i < 3; i++) {
+            OWLOntology tenant = oh.createOntology("http://autumncode.com/ontologies/tenant" + i + ".owl");
+            oh.applyChange(new AddImport(tenant, oh.df.getOWLImportsDeclaration(shared)));
+            OWLIndividual father = oh.createIndividual(NS + "father" + i);
+            OWLIndividual child = oh.createIndividual(NS + "child" + i);
+            oh.applyChange(oh.associateIndividualWithClass(tenant, male, father),
+                    oh.associateIndividualWithClass(tenant, male, child),
+                    oh.addObjectproperty(tenant, child, oh.createObjectProperty(NS + "hasFather"), father));
+            oh.writeOntology(tenant, new FileDocumentTarget(directory.resolve("tenant" + i + ".owl").toFile()));
+        }
+    }
+
+    private OntologyRegistry registry(OntologyHelper oh, long maxAxioms, Path spillDirectory) {
+        OntologyRegistry registry = oh.createRegistry(maxAxioms, spillDirectory);
+        for (int i = 0; i < 3; i++) {
+            registry.register("tenant" + i, IRI.create(directory.resolve("tenant" + i + ".owl").toFile()));
+        }
+        return registry;
+    }
+
+    @Test
+    public void loadsLazilyAndSharesImports() throws Exception {
+        OntologyHelper oh = new OntologyHelper();
+        try (OntologyRegistry registry = registry(oh, 1000, null)) {
+            assertEquals(registry.size(), 0);
+            assertNull(registry.getIfLoaded("tenant0"));
+
+            OWLOntology tenant0 = registry.get("tenant0");
+            OWLOntology tenant1 = registry.get("tenant1");
+            assertSame(registry.get("tenant0"), tenant0);
+            assertEquals(tenant0.getImports(), tenant1.getImports());
+            assertSame(tenant0.getImports().iterator().next(), tenant1.getImports().iterator().next());
+
+            RegistryStatistics statistics = registry.getStatistics();
+            assertEquals(statistics.getHits(), 1);
+            assertEquals(statistics.getMisses(), 2);
+            assertEquals(statistics.getSourceLoads(), 2);
+            assertEquals(statistics.getResident(), 3);
+        }
+        assertTrue(oh.m.getOntologies().isEmpty());
+    }
+
+    @Test
+    public void evictsWithinBudgetAndSpills() throws Exception {
+        Path spillDirectory = Files.createTempDirectory("spill");
+        OntologyHelper oh = new OntologyHelper();
+        // room for one tenant (and a changed axiom or so), not two
+        long tenantAxioms = new OntologyHelper()
+                .readOntology(new IRIDocumentSource(IRI.create(directory.resolve("tenant0.owl").toFile())))
+                .getAxiomCount();
+        try (OntologyRegistry registry = registry(oh, tenantAxioms * 3 / 2, spillDirectory)) {
+            OWLOntology tenant0 = registry.get("tenant0");
+            OWLOntologyID id = tenant0.getOntologyID();
+            OWLAxiomChange extra = oh.associateIndividualWithClass(tenant0,
+                    oh.createClass(NS + "Human"), oh.createIndividual(NS + "mother0"));
+            oh.applyChange(extra);
+
+            registry.get("tenant1");
+            assertNull(registry.getIfLoaded("tenant0"));
+            assertFalse(oh.m.contains(id));
+            RegistryStatistics statistics = registry.getStatistics();
+            assertEquals(statistics.getEvictions(), 1);
+            assertEquals(statistics.getSpills(), 1);
+            // tenant1 still holds the shared import
+            assertEquals(statistics.getResident(), 2);
+
+            OWLOntology reloaded = registry.get("tenant0");
+            assertTrue(reloaded.containsAxiom(extra.getAxiom()));
+            assertEquals(reloaded.getImports().size(), 1);
+            assertEquals(registry.getStatistics().getSpillLoads(), 1);
+
+            registry.invalidate("tenant0");
+            assertFalse(registry.get("tenant0").containsAxiom(extra.getAxiom()));
+            assertEquals(registry.getStatistics().getSourceLoads(), 3);
+        }
+    }
+
+    @Test
+    public void bulkLoadAfterSpillIsSpilledAgain() throws Exception {
+        Path spillDirectory = Files.createTempDirectory("spill");
+        OntologyHelper oh = new OntologyHelper();
+        try (OntologyRegistry registry = registry(oh, 1000, spillDirectory)) {
+            registry.get("tenant0");
+            registry.evict("tenant0");
+            assertEquals(registry.getStatistics().getSpills(), 1);
+
+            OWLOntology tenant0 = registry.get("tenant0");
+            OWLAxiom extra = oh.associateIndividualWithClass(tenant0,
+                    oh.createClass(NS + "Human"), oh.createIndividual(NS + "mother0")).getAxiom();
+            oh.bulkLoader(tenant0).add(extra).finish();
+            registry.evict("tenant0");
+
+            assertTrue(registry.get("tenant0").containsAxiom(extra));
+            assertEquals(registry.getStatistics().getSpills(), 2);
+        }
+    }
+
+    @Test
+    public void reweighsChangedOntologies() throws Exception {
+        OntologyHelper oh = new OntologyHelper();
+        long tenantAxioms = new OntologyHelper()
+                .readOntology(new IRIDocumentSource(IRI.create(directory.resolve("tenant0.owl").toFile())))
+                .getAxiomCount();
+        try (OntologyRegistry registry = registry(oh, tenantAxioms * 5 / 2, null)) {
+            OWLOntology tenant0 = registry.get("tenant0");
+            registry.get("tenant1");
+            for (int i = 0; i < tenantAxioms; i++) {
+                oh.applyChange(oh.associateIndividualWithClass(tenant0,
+                        oh.createClass(NS + "Human"), oh.createIndividual(NS + "extra" + i)));
+            }
+            assertEquals(registry.getStatistics().getEvictions(), 0);
+            // tenant0 is now charged twice what it was loaded with, so tenant1 no longer fits
+            assertSame(registry.get("tenant0"), tenant0);
+            assertEquals(registry.getStatistics().getEvictions(), 1);
+            assertNull(registry.getIfLoaded("tenant1"));
+        }
+    }
+
+    @Test
+    public void evictionRemovesOntologyMeters() throws Exception {
+        OntologyHelper oh = new OntologyHelper();
+        SimpleMeterRegistry meters = new SimpleMeterRegistry();
+        oh.setMeterRegistry(meters);
+        long tenantAxioms = new OntologyHelper()
+                .readOntology(new IRIDocumentSource(IRI.create(directory.resolve("tenant0.owl").toFile())))
+                .getAxiomCount();
+        String tenant0 = "http://autumncode.com/ontologies/tenant0.owl";
+        try (OntologyRegistry registry = registry(oh, tenantAxioms * 3 / 2, null)) {
+            registry.get("tenant0");
+            assertNotNull(meters.find("owl.ontology.axioms").tag("ontology", tenant0).gauge());
+
+            registry.get("tenant1");
+            assertNull(registry.getIfLoaded("tenant0"));
+            assertNull(meters.find("owl.ontology.axioms").tag("ontology", tenant0).gauge());
+        }
+        assertTrue(meters.find("owl.ontology.axioms").gauges().isEmpty());
+    }
+
+    @Test
+    public void leasedOntologyStaysLoaded() throws Exception {
+        OntologyHelper oh = new OntologyHelper();
+        long tenantAxioms = new OntologyHelper()
+                .readOntology(new IRIDocumentSource(IRI.create(directory.resolve("tenant0.owl").toFile())))
+                .getAxiomCount();
+        try (OntologyRegistry registry = registry(oh, tenantAxioms * 3 / 2, null)) {
+            OWLOntology tenant0;
+            try (OntologyRegistry.Lease lease = registry.lease("tenant0")) {
+                tenant0 = lease.getOntology();
+                registry.get("tenant1");
+                assertNull(registry.getIfLoaded("tenant0"));
+                assertTrue(oh.m.contains(tenant0.getOntologyID()));
+                assertSame(registry.get("tenant0"), tenant0);
+            }
+            registry.get("tenant1");
+            assertFalse(oh.m.contains(tenant0.getOntologyID()));
+        }
+    }
+
+    @Test
+    public void refusesOntologyOverBudget() throws Exception {
+        OntologyHelper oh = new OntologyHelper();
+        try (OntologyRegistry registry = registry(oh, 1, null)) {
+            registry.get("tenant0");
+            fail("loaded an ontology over the budget");
+        } catch (OWLOntologyCreationException expected) {
+            assertTrue(oh.m.getOntologies().isEmpty());
+        }
+    }
+
+    @Test(expectedExceptions = OWLOntologyCreationException.class)
+    public void unknownName() throws Exception {
+        try (OntologyRegistry registry = registry(new OntologyHelper(), 1000, null)) {
+            registry.get("tenant9");
+        }
+    }
+}
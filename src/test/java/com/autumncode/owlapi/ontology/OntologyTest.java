@@ -1,12 +1,15 @@
 package com.autumncode.owlapi.ontology;
 
 import org.semanticweb.owlapi.io.*;
-import org.semanticweb.owlapi.model.IRI;
-import org.semanticweb.owlapi.model.OWLException;
-import org.semanticweb.owlapi.model.OWLOntology;
+import org.semanticweb.owlapi.model.*;
 import org.testng.annotations.DataProvider;
 import org.testng.annotations.Test;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+import java.util.Collections;
+
 import static org.testng.Assert.assertEquals;
 import static org.testng.Assert.assertNotNull;
 
@@ -51,4 +54,59 @@ public class OntologyTest {
         assertEquals(oh.convertStringToIRI("http://autumncode.com/ontologies/2015/example.owl"),
                 o.getOntologyID().getOntologyIRI().or(oh.convertStringToIRI("false")));
     }
+
+    @Test
+    public void writeSnapshot() throws OWLException {
+        OntologyHelper oh = new OntologyHelper();
+        OWLOntology ontology = oh.createOntology("http://autumncode.com/ontologies/2015/example.owl");
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        oh.writeSnapshot(ontology, baos);
+
+        OWLOntology o = new OntologyHelper().readSnapshot(new ByteArrayInputStream(baos.toByteArray()));
+        assertEquals(oh.convertStringToIRI("http://autumncode.com/ontologies/2015/example.owl"),
+                o.getOntologyID().getOntologyIRI().or(oh.convertStringToIRI("false")));
+    }
+
+    @Test
+    public void snapshotRoundTrip() throws OWLException {
+        OntologyHelper oh = new OntologyHelper();
+        String ns = "http://autumncode.com/ontologies/genealogy.owl#";
+        OWLOntology ontology = oh.createOntology("http://autumncode.com/ontologies/genealogy.owl");
+        OWLClass human = oh.createClass(ns + "Human");
+        OWLClass male = oh.createClass(ns + "Male");
+        OWLClass female = oh.createClass(ns + "Female");
+        OWLObjectProperty hasFather = oh.createObjectProperty(ns + "hasFather");
+        OWLDataProperty age = oh.createDataProperty(ns + "age");
+        OWLDataProperty name = oh.createDataProperty(ns + "name");
+        OWLDataProperty living = oh.createDataProperty(ns + "living");
+        OWLIndividual barry = oh.createIndividual(ns + "barry");
+        OWLIndividual joseph = oh.createIndividual(ns + "joseph");
+        oh.applyChange(
+                oh.createSubclass(ontology, male, human),
+                oh.addDisjointClass(ontology, female, male),
+                oh.associateObjectPropertyWithClass(ontology, hasFather, human, male),
+                oh.associateIndividualWithClass(ontology, male, barry),
+                oh.addObjectproperty(ontology, joseph, hasFather, barry),
+                oh.addDataToIndividual(ontology, joseph, age, 42),
+                oh.addDataToIndividual(ontology, joseph, name, "Joseph"),
+                oh.addDataToIndividual(ontology, barry, living, true)
+        );
+        // shapes the snapshot format has no record for end up in the residual document
+        OWLDataFactory df = ontology.getOWLOntologyManager().getOWLDataFactory();
+        OWLAnnotation comment = df.getOWLAnnotation(df.getRDFSComment(), df.getOWLLiteral("a family tree"));
+        ontology.getOWLOntologyManager().applyChanges(Arrays.asList(
+                new AddAxiom(ontology, df.getOWLSubClassOfAxiom(male,
+                        df.getOWLObjectAllValuesFrom(hasFather, male))),
+                new AddAxiom(ontology, df.getOWLDeclarationAxiom(male,
+                        Collections.singleton(comment))),
+                new AddOntologyAnnotation(ontology, comment)));
+
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        oh.writeSnapshot(ontology, baos);
+        OWLOntology o = new OntologyHelper().readSnapshot(new ByteArrayInputStream(baos.toByteArray()));
+
+        assertEquals(o.getOntologyID(), ontology.getOntologyID());
+        assertEquals(o.getAxioms(), ontology.getAxioms());
+        assertEquals(o.getAnnotations(), ontology.getAnnotations());
+    }
 }
@@ -0,0 +1,88 @@
+package com.autumncode.owlapi.ontology;
+
+import org.semanticweb.owlapi.model.*;
+import org.semanticweb.owlapi.reasoner.OWLReasoner;
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.*;
+
+public class ReasonerPoolTest {
+    private static final String NS = "http://autumncode.com/ontologies/genealogy.owl#";
+
+    @Test
+    public void sessionFollowsChanges() throws Exception {
+        OntologyHelper oh = new OntologyHelper();
+        OWLOntology o = oh.createOntology("http://autumncode.com/ontologies/genealogy.owl");
+        OWLClass human = oh.createClass(NS + "Human");
+        OWLClass male = oh.createClass(NS + "Male");
+        OWLClass female = oh.createClass(NS + "Female");
+        OWLObjectProperty hasFather = oh.createObjectProperty(NS + "hasFather");
+        OWLObjectProperty hasMother = oh.createObjectProperty(NS + "hasMother");
+        oh.applyChange(
+                oh.createSubclass(o, male, human),
+                oh.createSubclass(o, female, human),
+                oh.addDisjointClass(o, female, male),
+                oh.associateObjectPropertyWithClass(o, hasFather, human, male),
+                oh.associateObjectPropertyWithClass(o, hasMother, human, female)
+        );
+        OWLIndividual thomas = oh.createIndividual(NS + "thomas");
+        OWLIndividual shirley = oh.createIndividual(NS + "shirley");
+        OWLIndividual vicki = oh.createIndividual(NS + "vicki");
+        oh.applyChange(
+                oh.associateIndividualWithClass(o, male, thomas),
+                oh.associateIndividualWithClass(o, female, shirley),
+                oh.associateIndividualWithClass(o, female, vicki),
+                oh.addObjectproperty(o, vicki, hasMother, shirley),
+                oh.addObjectproperty(o, vicki, hasFather, thomas)
+        );
+
+        ReasonerPool pool = oh.getReasonerPool();
+        ReasonerSession session = pool.session(o);
+        OWLReasoner reasoner = session.getReasoner();
+        assertTrue(session.isConsistent());
+        assertTrue(session.getInstances(human, false).containsEntity(vicki.asOWLNamedIndividual()));
+
+        oh.applyChange(oh.associateIndividualWithClass(o, male, vicki));
+        assertSame(pool.session(o), session);
+        assertSame(session.getReasoner(), reasoner);
+        assertFalse(session.isConsistent());
+        assertEquals(pool.size(), 1);
+    }
+
+    @Test
+    public void bulkLoadInvalidatesSession() throws Exception {
+        OntologyHelper oh = new OntologyHelper();
+        OWLOntology o = oh.createOntology("http://autumncode.com/ontologies/genealogy.owl");
+        OWLClass male = oh.createClass(NS + "Male");
+        OWLClass female = oh.createClass(NS + "Female");
+        OWLIndividual thomas = oh.createIndividual(NS + "thomas");
+        oh.applyChange(oh.addDisjointClass(o, female, male), oh.associateIndividualWithClass(o, male, thomas));
+
+        ReasonerSession session = oh.getReasonerPool().session(o);
+        assertTrue(session.isConsistent());
+
+        oh.bulkLoader(o).add(oh.associateIndividualWithClass(o, female, thomas)).finish();
+        assertTrue(session.isDisposed());
+        assertFalse(oh.getReasonerPool().session(o).isConsistent());
+    }
+
+    @Test
+    public void removingOntologyDisposesSession() throws Exception {
+        OntologyHelper oh = new OntologyHelper();
+        OWLOntology o = oh.createOntology("http://autumncode.com/ontologies/person.owl");
+        ReasonerSession session = oh.getReasonerPool().session(o);
+        oh.removeOntology(o);
+        assertTrue(session.isDisposed());
+        assertEquals(oh.getReasonerPool().size(), 0);
+    }
+
+    @Test
+    public void shutdownDisposesSessions() throws Exception {
+        OntologyHelper oh = new OntologyHelper();
+        OWLOntology o = oh.createOntology("http://autumncode.com/ontologies/person.owl");
+        ReasonerSession session = oh.getReasonerPool().session(o);
+        oh.getReasonerPool().shutdown();
+        assertTrue(session.isDisposed());
+        assertEquals(oh.getReasonerPool().size(), 0);
+    }
+}
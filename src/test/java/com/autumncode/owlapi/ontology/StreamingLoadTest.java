@@ -0,0 +1,129 @@
+package com.autumncode.owlapi.ontology;
+
+import org.openrdf.rio.RDFFormat;
+import org.semanticweb.owlapi.formats.RDFXMLDocumentFormat;
+import org.semanticweb.owlapi.formats.RioTurtleDocumentFormat;
+import org.semanticweb.owlapi.io.FileDocumentTarget;
+import org.semanticweb.owlapi.model.*;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+public class StreamingLoadTest {
+    private static final String NS = "http://autumncode.com/ontologies/genealogy.owl#";
+
+    private OWLOntology genealogy(OntologyHelper oh) throws OWLOntologyCreationException {
+        OWLOntology o = oh.createOntology("http://autumncode.com/ontologies/genealogy.owl");
+        OWLClass human = oh.createClass(NS + "Human");
+        OWLClass male = oh.createClass(NS + "Male");
+        OWLClass female = oh.createClass(NS + "Female");
+        OWLObjectProperty hasFather = oh.createObjectProperty(NS + "hasFather");
+        OWLObjectProperty hasMother = oh.createObjectProperty(NS + "hasMother");
+        OWLDataProperty age = oh.createDataProperty(NS + "age");
+        oh.applyChange(
+                oh.createSubclass(o, male, human),
+                oh.createSubclass(o, female, human),
+                oh.addDisjointClass(o, female, male),
+                oh.associateObjectPropertyWithClass(o, hasFather, human, male),
+                oh.associateObjectPropertyWithClass(o, hasMother, human, female),
+                // the header comes before any declarations, so this property is undeclared there
+                new AddOntologyAnnotation(o, oh.df.getOWLAnnotation(
+                        oh.df.getOWLAnnotationProperty(IRI.create(NS + "source")), oh.df.getOWLLiteral("census")))
+        );
+        for (int i = 0; i < 50; i++) {
+            OWLIndividual father = oh.createIndividual(NS + "father" + i);
+            OWLIndividual mother = oh.createIndividual(NS + "mother" + i);
+            OWLIndividual child = oh.createIndividual(NS + "child" + i);
+            oh.applyChange(
+                    oh.associateIndividualWithClass(o, male, father),
+                    oh.associateIndividualWithClass(o, female, mother),
+                    oh.addObjectproperty(o, child, hasFather, father),
+                    oh.addObjectproperty(o, child, hasMother, mother),
+                    oh.addDataToIndividual(o, child, age, i)
+            );
+        }
+        return o;
+    }
+
+    @DataProvider
+    Object[][] formats() {
+        return new Object[][]{
+                {new RioTurtleDocumentFormat(), RDFFormat.TURTLE},
+                {new RDFXMLDocumentFormat(), RDFFormat.RDFXML}
+        };
+    }
+
+    @Test(dataProvider = "formats")
+    public void streamingRoundTrip(OWLDocumentFormat writeFormat, RDFFormat readFormat) throws Exception {
+        OntologyHelper oh = new OntologyHelper();
+        OWLOntology o = genealogy(oh);
+        Path file = Files.createTempFile("genealogy", ".owl");
+        try {
+            oh.writeOntology(o, writeFormat, new FileDocumentTarget(file.toFile()));
+
+            OntologyHelper reader = new OntologyHelper();
+            OWLOntology target = reader.createOntology("http://autumncode.com/ontologies/genealogy.owl");
+            List<Double> progress = new ArrayList<>();
+            StreamingLoad load = reader.readOntologyStreaming(file, readFormat, target,
+                    l -> progress.add(l.getFractionComplete()));
+            load.await();
+
+            assertTrue(load.isDone());
+            assertEquals(load.getBytesRead(), load.getTotalBytes());
+            assertTrue(load.getStreamedAxioms() > 0);
+            assertEquals(progress.get(progress.size() - 1), 1.0);
+            assertEquals(target.getLogicalAxioms(), o.getLogicalAxioms());
+            assertEquals(target.getAnnotations(), o.getAnnotations());
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public void truncatedDocumentStillReportsCommittedChunks() throws Exception {
+        OntologyHelper oh = new OntologyHelper();
+        Path file = Files.createTempFile("genealogy", ".ttl");
+        try {
+            oh.writeOntology(genealogy(oh), new RioTurtleDocumentFormat(), new FileDocumentTarget(file.toFile()));
+            byte[] document = Files.readAllBytes(file);
+            // cut inside a statement, so the document can't end cleanly
+            int cut = document.length * 3 / 4;
+            while (Character.isWhitespace(document[cut - 1]) || document[cut - 1] == '.') {
+                cut--;
+            }
+            Files.write(file, Arrays.copyOf(document, cut));
+
+            OntologyHelper reader = new OntologyHelper();
+            OWLOntology target = reader.createOntology("http://autumncode.com/ontologies/genealogy.owl");
+            ReasonerSession session = reader.getReasonerPool().session(target);
+            // small chunks, so some are committed before the parser hits the end
+            StreamingLoad load = new StreamingLoad(reader, file, RDFFormat.TURTLE, target, null, 10).start();
+            try {
+                load.await();
+                fail("loaded a truncated document");
+            } catch (OWLOntologyCreationException expected) {
+                assertTrue(target.getAxiomCount() > 0);
+                assertTrue(session.isDisposed());
+            }
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test(expectedExceptions = OWLOntologyCreationException.class)
+    public void missingFile() throws Exception {
+        OntologyHelper oh = new OntologyHelper();
+        OWLOntology target = oh.createOntology("http://autumncode.com/ontologies/genealogy.owl");
+        oh.readOntologyStreaming(Files.createTempDirectory("empty").resolve("missing.ttl"),
+                RDFFormat.TURTLE, target, null).await();
+    }
+}
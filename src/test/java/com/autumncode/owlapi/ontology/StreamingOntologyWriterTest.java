@@ -0,0 +1,79 @@
+package com.autumncode.owlapi.ontology;
+
+import org.semanticweb.owlapi.io.StreamDocumentSource;
+import org.semanticweb.owlapi.io.StringDocumentSource;
+import org.semanticweb.owlapi.model.*;
+import org.testng.annotations.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+public class StreamingOntologyWriterTest {
+    private static final String NS = "http://autumncode.com/ontologies/terminator.owl#";
+
+    private OWLOntology terminators(OntologyHelper oh, int count) throws OWLOntologyCreationException {
+        OWLOntology o = oh.createOntology("http://autumncode.com/ontologies/terminator.owl");
+        OWLClass person = oh.createClass(NS + "Person");
+        OWLClass robot = oh.createClass(NS + "Robot");
+        OWLClass terminator = oh.createClass(NS + "Terminator");
+        oh.applyChange(oh.createSubclass(o, terminator, robot), oh.addDisjointClass(o, person, robot));
+        for (int i = 0; i < count; i++) {
+            oh.applyChange(oh.associateIndividualWithClass(o, terminator, oh.createIndividual(NS + "t" + i)));
+        }
+        return o;
+    }
+
+    @Test
+    public void roundTrip() throws OWLException {
+        OntologyHelper oh = new OntologyHelper();
+        OWLOntology o = terminators(oh, 100);
+        ByteArrayOutputStream first = new ByteArrayOutputStream();
+        ByteArrayOutputStream second = new ByteArrayOutputStream();
+        assertEquals(oh.streamingWriter(o).writeTo(first), o.getAxiomCount());
+        oh.streamingWriter(o).writeTo(second);
+        assertEquals(first.toString(), second.toString());
+
+        OWLOntology copy = new OntologyHelper().readOntology(
+                new StringDocumentSource(new String(first.toByteArray(), StandardCharsets.UTF_8)));
+        assertEquals(copy.getAxioms(), o.getAxioms());
+    }
+
+    @Test
+    public void gzip() throws Exception {
+        OntologyHelper oh = new OntologyHelper();
+        OWLOntology o = terminators(oh, 100);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        oh.streamingWriter(o).compression(StreamingOntologyWriter.Compression.GZIP).writeTo(out);
+
+        OWLOntology copy = new OntologyHelper().readOntology(new StreamDocumentSource(
+                new GZIPInputStream(new ByteArrayInputStream(out.toByteArray()))));
+        assertEquals(copy.getAxioms(), o.getAxioms());
+    }
+
+    @Test
+    public void shards() throws Exception {
+        OntologyHelper oh = new OntologyHelper();
+        OWLOntology o = terminators(oh, 500);
+        Path directory = Files.createTempDirectory("shards");
+        List<Path> files = oh.streamingWriter(o).shardSize(4096).writeShards(directory, "terminator");
+        assertTrue(files.size() > 1);
+
+        OntologyHelper target = new OntologyHelper();
+        OWLOntology merged = target.createOntology("http://autumncode.com/ontologies/merged.owl");
+        try (IngestionPipeline pipeline = target.ingestionPipeline(merged)) {
+            for (Path file : files) {
+                assertTrue(Files.size(file) < 4096 + 1024);
+                pipeline.submit(file);
+            }
+        }
+        assertEquals(merged.getAxioms(), o.getAxioms());
+    }
+}
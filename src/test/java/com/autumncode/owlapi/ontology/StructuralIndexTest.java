@@ -0,0 +1,124 @@
+package com.autumncode.owlapi.ontology;
+
+import org.semanticweb.owlapi.model.*;
+import org.testng.annotations.Test;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.testng.Assert.*;
+
+public class StructuralIndexTest {
+    private static final String NS = "http://autumncode.com/ontologies/genealogy.owl#";
+
+    @SafeVarargs
+    private static <T> Set<T> set(T... values) {
+        return new HashSet<>(Arrays.asList(values));
+    }
+
+    private static <T> Set<T> set(Stream<T> stream) {
+        return stream.collect(Collectors.toSet());
+    }
+
+    @Test
+    public void followsChanges() throws Exception {
+        OntologyHelper oh = new OntologyHelper();
+        OWLOntology o = oh.createOntology("http://autumncode.com/ontologies/genealogy.owl");
+        OWLClass human = oh.createClass(NS + "Human");
+        OWLClass male = oh.createClass(NS + "Male");
+        OWLClass female = oh.createClass(NS + "Female");
+        OWLObjectProperty hasFather = oh.createObjectProperty(NS + "hasFather");
+        OWLObjectProperty hasMother = oh.createObjectProperty(NS + "hasMother");
+        OWLDataProperty name = oh.createDataProperty(NS + "name");
+        OWLIndividual barry = oh.createIndividual(NS + "barry");
+        OWLIndividual thomas = oh.createIndividual(NS + "thomas");
+
+        // some axioms before the index exists, some after
+        oh.applyChange(oh.associateObjectPropertyWithClass(o, hasFather, human, male),
+                oh.addDisjointClass(o, female, male));
+        try (StructuralIndex index = oh.structuralIndex(o)) {
+            oh.applyChange(oh.associateObjectPropertyWithClass(o, hasMother, human, female),
+                    oh.addObjectproperty(o, thomas, hasFather, barry),
+                    oh.addDataToIndividual(o, thomas, name, "Thomas"));
+
+            assertEquals(set(index.getRestrictionHolders(hasFather)), set(human));
+            assertEquals(set(index.getRestrictionHolders(hasMother, female)), set(human));
+            assertTrue(set(index.getRestrictionHolders(hasMother, male)).isEmpty());
+            assertEquals(set(index.getRestrictionHoldersForFiller(male)), set(human));
+            assertEquals(set(index.getDisjointClasses(male)), set(female));
+            assertTrue(index.isDisjoint(female, male));
+            assertEquals(set(index.getObjectPropertyValues(thomas, hasFather)), set(barry));
+            assertEquals(index.getDataPropertyValues(thomas, name).findFirst().get().getLiteral(), "Thomas");
+            assertEquals(index.getPropertyAssertions(thomas).count(), 2);
+            assertEquals(index.getPropertyAssertions(barry).count(), 0);
+
+            OWLAxiomChange disjoint = oh.addDisjointClass(o, male, female);
+            oh.applyChange(new RemoveAxiom(o, disjoint.getAxiom()),
+                    new RemoveAxiom(o, oh.addObjectproperty(o, thomas, hasFather, barry).getAxiom()));
+            assertFalse(index.isDisjoint(male, female));
+            assertEquals(index.getObjectPropertyValues(thomas, hasFather).count(), 0);
+        }
+    }
+
+    @Test
+    public void disjointnessIgnoresNestedClasses() throws Exception {
+        OntologyHelper oh = new OntologyHelper();
+        OWLOntology o = oh.createOntology("http://autumncode.com/ontologies/genealogy.owl");
+        OWLClass male = oh.createClass(NS + "Male");
+        OWLClass orphan = oh.createClass(NS + "Orphan");
+        OWLObjectProperty hasFather = oh.createObjectProperty(NS + "hasFather");
+        try (StructuralIndex index = oh.structuralIndex(o)) {
+            oh.applyChange(new AddAxiom(o, oh.df.getOWLDisjointClassesAxiom(orphan,
+                    oh.df.getOWLObjectSomeValuesFrom(hasFather, male))));
+            assertTrue(set(index.getDisjointClasses(orphan)).isEmpty());
+            assertFalse(index.isDisjoint(orphan, male));
+        }
+    }
+
+    @Test
+    public void countsOverlappingAxioms() throws Exception {
+        OntologyHelper oh = new OntologyHelper();
+        OWLOntology o = oh.createOntology("http://autumncode.com/ontologies/genealogy.owl");
+        OWLClass male = oh.createClass(NS + "Male");
+        OWLClass female = oh.createClass(NS + "Female");
+        OWLClass robot = oh.createClass(NS + "Robot");
+        OWLDataFactory df = oh.df;
+        try (StructuralIndex index = oh.structuralIndex(o)) {
+            oh.applyChange(oh.addDisjointClass(o, male, female),
+                    new AddAxiom(o, df.getOWLDisjointClassesAxiom(male, female, robot)));
+            oh.applyChange(new RemoveAxiom(o, df.getOWLDisjointClassesAxiom(male, female, robot)));
+            // still stated by the pairwise axiom
+            assertTrue(index.isDisjoint(male, female));
+            assertFalse(index.isDisjoint(male, robot));
+        }
+    }
+
+    @Test
+    public void keepsRestrictionStatedTwice() throws Exception {
+        OntologyHelper oh = new OntologyHelper();
+        OWLOntology o = oh.createOntology("http://autumncode.com/ontologies/genealogy.owl");
+        OWLClass human = oh.createClass(NS + "Human");
+        OWLClass male = oh.createClass(NS + "Male");
+        OWLClass female = oh.createClass(NS + "Female");
+        OWLObjectProperty hasFather = oh.createObjectProperty(NS + "hasFather");
+        OWLObjectProperty hasMother = oh.createObjectProperty(NS + "hasMother");
+        OWLDataFactory df = oh.df;
+        OWLSubClassOfAxiom both = df.getOWLSubClassOfAxiom(human, df.getOWLObjectIntersectionOf(
+                df.getOWLObjectSomeValuesFrom(hasFather, male), df.getOWLObjectSomeValuesFrom(hasMother, female)));
+        try (StructuralIndex index = oh.structuralIndex(o)) {
+            oh.applyChange(oh.associateObjectPropertyWithClass(o, hasFather, human, male), new AddAxiom(o, both));
+            oh.applyChange(new RemoveAxiom(o, both));
+            // hasFather some Male is still stated on its own
+            assertEquals(set(index.getRestrictionHolders(hasFather, male)), set(human));
+            assertEquals(set(index.getRestrictionHoldersForFiller(male)), set(human));
+            assertTrue(set(index.getRestrictionHolders(hasMother)).isEmpty());
+            assertTrue(set(index.getRestrictionHoldersForFiller(female)).isEmpty());
+
+            index.rebuild();
+            assertEquals(set(index.getRestrictionHolders(hasFather)), set(human));
+        }
+    }
+}